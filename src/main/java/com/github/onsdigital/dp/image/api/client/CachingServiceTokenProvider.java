@@ -0,0 +1,71 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import org.apache.http.util.Args;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * A {@link ServiceTokenProvider} that caches the token from another provider and refreshes it once it is older
+ * than the given time to live. Concurrent callers share a single refresh.
+ */
+public class CachingServiceTokenProvider implements ServiceTokenProvider {
+
+    private final ServiceTokenProvider delegate;
+    private final long ttlNanos;
+
+    private volatile CachedToken cached;
+
+    /**
+     * Create a new instance of CachingServiceTokenProvider
+     *
+     * @param delegate The provider used to fetch a fresh token
+     * @param ttl      How long a fetched token is reused before it is refreshed
+     */
+    public CachingServiceTokenProvider(ServiceTokenProvider delegate, Duration ttl) {
+        Args.notNull(delegate, "token provider");
+        Args.notNull(ttl, "time to live");
+        Args.check(!ttl.isNegative() && !ttl.isZero(), "time to live must be positive");
+
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public String getServiceToken() throws IOException {
+        CachedToken current = cached;
+        if (current != null && !current.isExpired()) {
+            return current.token;
+        }
+
+        synchronized (this) {
+            current = cached;
+            if (current == null || current.isExpired()) {
+                current = new CachedToken(delegate.getServiceToken(), System.nanoTime() + ttlNanos);
+                cached = current;
+            }
+            return current.token;
+        }
+    }
+
+    /**
+     * Discard the cached token so the next request fetches a fresh one, e.g. after it has been rejected
+     */
+    public void invalidate() {
+        cached = null;
+    }
+
+    private static class CachedToken {
+        private final String token;
+        private final long expiresAtNanos;
+
+        private CachedToken(String token, long expiresAtNanos) {
+            this.token = token;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+}
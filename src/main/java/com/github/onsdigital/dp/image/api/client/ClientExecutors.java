@@ -0,0 +1,138 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background threads owned by an {@link ImageAPIClient} and shared with every client derived from it, so that
+ * creating a client per tenant does not start threads per tenant. Each pool is created on first use, is bounded,
+ * and lets its threads exit when idle.
+ */
+class ClientExecutors implements Closeable {
+
+    static final int DEFAULT_BATCH_LOADER_THREADS = 8;
+    static final int DEFAULT_REQUEST_THREADS = 16;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final int batchLoaderThreads;
+    private final int requestThreads;
+
+    private ScheduledThreadPoolExecutor batchScheduler;
+    private ThreadPoolExecutor batchLoaders;
+    private ThreadPoolExecutor requestWorkers;
+    private ThreadPoolExecutor snapshotRevalidator;
+    private boolean closed;
+
+    ClientExecutors(int batchLoaderThreads, int requestThreads) {
+        this.batchLoaderThreads = batchLoaderThreads;
+        this.requestThreads = requestThreads;
+    }
+
+    ClientExecutors(int batchLoaderThreads) {
+        this(batchLoaderThreads, DEFAULT_REQUEST_THREADS);
+    }
+
+    ClientExecutors() {
+        this(DEFAULT_BATCH_LOADER_THREADS);
+    }
+
+    /**
+     * @return The single thread that waits out batching windows
+     */
+    synchronized ScheduledExecutorService batchScheduler() {
+        checkOpen();
+        if (batchScheduler == null) {
+            batchScheduler = new ScheduledThreadPoolExecutor(1, daemonThreads("image-batch-scheduler"));
+            batchScheduler.setRemoveOnCancelPolicy(true);
+            batchScheduler.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            batchScheduler.allowCoreThreadTimeOut(true);
+        }
+        return batchScheduler;
+    }
+
+    /**
+     * @return The bounded pool that loads batches, queueing batches beyond its size
+     */
+    synchronized ExecutorService batchLoaders() {
+        checkOpen();
+        if (batchLoaders == null) {
+            batchLoaders = boundedPool(batchLoaderThreads, "image-batch-loader");
+        }
+        return batchLoaders;
+    }
+
+    /**
+     * @return The bounded pool that runs the requests of calls that work in parallel, such as publishing a
+     * collection. Each call limits how many of its own requests it has queued here, so calls share the pool's
+     * threads rather than starting their own.
+     */
+    synchronized ExecutorService requestWorkers() {
+        checkOpen();
+        if (requestWorkers == null) {
+            requestWorkers = boundedPool(requestThreads, "image-request-worker");
+        }
+        return requestWorkers;
+    }
+
+    /**
+     * @return The single thread that revalidates listing snapshots, so they are revalidated one at a time
+     */
+    synchronized ExecutorService snapshotRevalidator() {
+        checkOpen();
+        if (snapshotRevalidator == null) {
+            snapshotRevalidator = boundedPool(1, "image-snapshot-revalidator");
+        }
+        return snapshotRevalidator;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("image api client is closed");
+        }
+    }
+
+    static ThreadPoolExecutor boundedPool(int threads, String name) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Stop the background threads. Batches and requests already queued are still run, but snapshot revalidations
+     * are abandoned.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (batchScheduler != null) {
+            batchScheduler.shutdown();
+        }
+        if (batchLoaders != null) {
+            batchLoaders.shutdown();
+        }
+        if (requestWorkers != null) {
+            requestWorkers.shutdown();
+        }
+        if (snapshotRevalidator != null) {
+            snapshotRevalidator.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import org.apache.http.util.Args;
+
+/**
+ * Options controlling how {@link ImageClient#download(String, java.nio.file.Path, DownloadOptions)} downloads
+ * image content to a file.
+ */
+public class DownloadOptions {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final long DEFAULT_RANGE_SIZE = 8 * 1024 * 1024;
+
+    private final int bufferSize;
+    private final int parallelism;
+    private final long rangeSize;
+    private final boolean resume;
+
+    /**
+     * Create a new instance of DownloadOptions
+     *
+     * @param bufferSize  The size of the fixed buffer each transfer copies through
+     * @param parallelism The maximum number of ranges fetched at once, 1 to download sequentially
+     * @param rangeSize   The size of each range when downloading in parallel
+     * @param resume      Whether to continue a partial file left by an earlier download rather than start again.
+     *                    It is only continued if the server confirms by its ETag that the content is unchanged.
+     */
+    public DownloadOptions(int bufferSize, int parallelism, long rangeSize, boolean resume) {
+        Args.positive(bufferSize, "buffer size");
+        Args.positive(parallelism, "parallelism");
+        Args.positive(rangeSize, "range size");
+
+        this.bufferSize = bufferSize;
+        this.parallelism = parallelism;
+        this.rangeSize = rangeSize;
+        this.resume = resume;
+    }
+
+    public DownloadOptions() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_PARALLELISM, DEFAULT_RANGE_SIZE, false);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getRangeSize() {
+        return rangeSize;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+}
@@ -2,19 +2,45 @@ package com.github.onsdigital.dp.image.api.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.dp.image.api.client.exception.*;
+import com.github.onsdigital.dp.image.api.client.jfr.ImageAPIEvents;
+import com.github.onsdigital.dp.image.api.client.model.Image;
 import com.github.onsdigital.dp.image.api.client.model.Images;
+import com.github.onsdigital.dp.image.api.client.snapshot.Snapshot;
+import com.github.onsdigital.dp.image.api.client.snapshot.SnapshotStore;
+import com.github.onsdigital.dp.image.api.client.transport.Http2Transport;
+import com.github.onsdigital.dp.image.api.client.transport.HttpClient4Transport;
+import com.github.onsdigital.dp.image.api.client.transport.RequestBody;
+import com.github.onsdigital.dp.image.api.client.transport.Transport;
+import com.github.onsdigital.dp.image.api.client.transport.TransportRequest;
+import com.github.onsdigital.dp.image.api.client.transport.TransportResponse;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.methods.*;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.Args;
-import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 import static com.github.onsdigital.logging.v2.event.SimpleEvent.info;
 
@@ -24,11 +50,29 @@ import static com.github.onsdigital.logging.v2.event.SimpleEvent.info;
 public class ImageAPIClient implements ImageClient {
 
     private final URI imageAPIURL;
-    private final String serviceAuthToken;
+    private final ServiceTokenProvider serviceTokenProvider;
 
-    private final CloseableHttpClient client;
+    private final Transport transport;
+    private final ClientExecutors executors;
+    private final boolean ownsShared;
+    private final SnapshotStore snapshotStore;
+
+    private ImageBatchLoader batchLoader;
+    private SnapshotListings snapshotListings;
+
+    static final int LISTING_PAGE_SIZE = PublishOptions.DEFAULT_PAGE_SIZE;
+
+    /**
+     * Connection limits of the default HTTP client. Every client returned by {@link #withServiceAuthToken(String)}
+     * shares the pool, and the image API is usually a single route, so the per route limit has to cover the
+     * parallelism of all of them together. Pass a client built with an {@link InstrumentedConnectionManager} to use
+     * other limits.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+    public static final int DEFAULT_MAX_CONNECTIONS = 100;
 
     private static final String serviceTokenHeaderName = "Authorization";
+    private static final int MAX_CONTENT_REDIRECTS = 5;
     private static final ObjectMapper json = new ObjectMapper();
 
     /**
@@ -42,9 +86,8 @@ public class ImageAPIClient implements ImageClient {
                           String serviceAuthToken,
                           CloseableHttpClient client) throws URISyntaxException {
 
-        this.imageAPIURL = new URI(imageAPIURL);
-        this.client = client;
-        this.serviceAuthToken = serviceAuthToken;
+        this(new URI(imageAPIURL), () -> serviceAuthToken, new HttpClient4Transport(client), new ClientExecutors(), true,
+                null);
     }
 
     /**
@@ -58,13 +101,97 @@ public class ImageAPIClient implements ImageClient {
         this(imageAPIURL, serviceAuthToken, createDefaultHttpClient());
     }
 
+    /**
+     * Create a new instance of ImageAPIClient with a default Http client that asks the given provider for the
+     * authentication token on each request.
+     * A factory method rather than a constructor, so that existing calls such as
+     * {@code new ImageAPIClient(url, null)} do not become ambiguous.
+     *
+     * @param imageAPIURL          The URL of the image API
+     * @param serviceTokenProvider The provider of the authentication token for the image API
+     * @return A new ImageAPIClient
+     * @throws URISyntaxException
+     */
+    public static ImageAPIClient create(String imageAPIURL, ServiceTokenProvider serviceTokenProvider)
+            throws URISyntaxException {
+
+        return create(imageAPIURL, serviceTokenProvider, createDefaultHttpClient());
+    }
+
+    /**
+     * Create a new instance of ImageAPIClient that asks the given provider for the authentication token on each
+     * request
+     *
+     * @param imageAPIURL          The URL of the image API
+     * @param serviceTokenProvider The provider of the authentication token for the image API
+     * @param client               The HTTP client to use internally
+     * @return A new ImageAPIClient
+     * @throws URISyntaxException
+     */
+    public static ImageAPIClient create(String imageAPIURL,
+                                        ServiceTokenProvider serviceTokenProvider,
+                                        CloseableHttpClient client) throws URISyntaxException {
+
+        return create(imageAPIURL, serviceTokenProvider, new HttpClient4Transport(client));
+    }
+
+    /**
+     * Create a new instance of ImageAPIClient that sends requests with the given transport
+     *
+     * @param imageAPIURL          The URL of the image API
+     * @param serviceTokenProvider The provider of the authentication token for the image API
+     * @param transport            The {@link Transport} to send requests with, e.g. an {@link Http2Transport}
+     * @return A new ImageAPIClient
+     * @throws URISyntaxException
+     */
+    public static ImageAPIClient create(String imageAPIURL,
+                                        ServiceTokenProvider serviceTokenProvider,
+                                        Transport transport) throws URISyntaxException {
+
+        return new ImageAPIClient(new URI(imageAPIURL), serviceTokenProvider, transport, new ClientExecutors(), true,
+                null);
+    }
+
+    /**
+     * @param ownsShared Whether this client created the transport and executors, rather than sharing another
+     *                   client's, and so closes them
+     */
+    private ImageAPIClient(URI imageAPIURL,
+                           ServiceTokenProvider serviceTokenProvider,
+                           Transport transport,
+                           ClientExecutors executors,
+                           boolean ownsShared,
+                           SnapshotStore snapshotStore) {
+
+        Args.notNull(serviceTokenProvider, "service token provider");
+        Args.notNull(transport, "transport");
+
+        this.imageAPIURL = imageAPIURL;
+        this.serviceTokenProvider = serviceTokenProvider;
+        this.transport = transport;
+        this.executors = executors;
+        this.ownsShared = ownsShared;
+        this.snapshotStore = snapshotStore;
+    }
+
     private static CloseableHttpClient createDefaultHttpClient() {
-        return HttpClients.custom().setServiceUnavailableRetryStrategy(new RetryStrategy()).build();
+        InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setMaxTotal(DEFAULT_MAX_CONNECTIONS);
+
+        RetryStrategy retryStrategy = new RetryStrategy();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setServiceUnavailableRetryStrategy(retryStrategy)
+                .setRetryHandler(retryStrategy)
+                .build();
     }
 
     /**
      * Get a collection of images
      * If the optional collectionId is supplied only images with a matching collection_id are returned.
+     * When the client has a {@link SnapshotStore}, a collection's listing is served from its snapshot if there is
+     * one, see {@link #withSnapshotStore(SnapshotStore)}.
      *
      * @param collectionID An optional string containing a collectionID to limit the results
      * @return An {@link Images} object containing a list of Image objects
@@ -74,18 +201,85 @@ public class ImageAPIClient implements ImageClient {
     @Override
     public Images getImages(String collectionID) throws IOException, ImageAPIException {
 
+        if (snapshotStore != null && StringUtils.isNotEmpty(collectionID)) {
+            return snapshotListings().getImages(collectionID);
+        }
+
         StringBuilder pathBuilder = new StringBuilder("/images");
         if (StringUtils.isNotEmpty(collectionID)) {
             pathBuilder.append("?collection_id=").append(collectionID);
         }
 
-        URI uri = imageAPIURL.resolve(pathBuilder.toString());
+        return getImages("getImages", imageAPIURL.resolve(pathBuilder.toString()));
+    }
+
+    /**
+     * Fetch the listing of a collection as a {@link Snapshot}. If a previous snapshot is given its ETag is sent,
+     * and when the image API reports the listing unchanged the previous listing is returned with a new fetch time.
+     */
+    Snapshot fetchSnapshot(String collectionID, Snapshot previous) throws IOException, ImageAPIException {
+
+        URI uri = imageAPIURL.resolve("/images?collection_id=" + collectionID);
+
+        TransportRequest req = new TransportRequest("GET", uri);
+        req.addHeader(serviceTokenHeaderName, serviceTokenProvider.getServiceToken());
+        if (previous != null && previous.getEtag() != null) {
+            req.addHeader("If-None-Match", previous.getEtag());
+        }
+
+        try (TransportResponse resp = executeRequest("getImages", req)) {
+            int statusCode = resp.getStatusCode();
+
+            if (statusCode == HttpStatus.SC_OK) {
+                Images images = parseResponseBody(resp, Images.class);
+                return new Snapshot(collectionID, images, resp.getFirstHeader("ETag"), Instant.now());
+            }
+            if (statusCode == HttpStatus.SC_NOT_MODIFIED && previous != null) {
+                return new Snapshot(collectionID, previous.getImages(), previous.getEtag(), Instant.now());
+            }
+            throw new ImageAPIException(formatErrResponse(req, resp, HttpStatus.SC_OK), statusCode);
+        }
+    }
+
+    private synchronized SnapshotListings snapshotListings() {
+        if (snapshotListings == null) {
+            snapshotListings = new SnapshotListings(this, snapshotStore, executors);
+        }
+        return snapshotListings;
+    }
+
+    /**
+     * Get a single page of a collection of images
+     * If the optional collectionId is supplied only images with a matching collection_id are returned.
+     *
+     * @param collectionID An optional string containing a collectionID to limit the results
+     * @param offset       The index of the first image to return
+     * @param limit        The maximum number of images to return
+     * @return An {@link Images} object containing a page of Image objects
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    @Override
+    public Images getImages(String collectionID, int offset, int limit) throws IOException, ImageAPIException {
 
-        HttpGet req = new HttpGet(uri);
-        req.addHeader(serviceTokenHeaderName, serviceAuthToken);
+        Args.notNegative(offset, "offset");
+        Args.positive(limit, "limit");
 
-        try (CloseableHttpResponse resp = executeRequest(req)) {
-            int statusCode = resp.getStatusLine().getStatusCode();
+        StringBuilder pathBuilder = new StringBuilder("/images?offset=").append(offset).append("&limit=").append(limit);
+        if (StringUtils.isNotEmpty(collectionID)) {
+            pathBuilder.append("&collection_id=").append(collectionID);
+        }
+
+        return getImages("getImagesPage", imageAPIURL.resolve(pathBuilder.toString()));
+    }
+
+    private Images getImages(String operation, URI uri) throws IOException, ImageAPIException {
+
+        TransportRequest req = new TransportRequest("GET", uri);
+        req.addHeader(serviceTokenHeaderName, serviceTokenProvider.getServiceToken());
+
+        try (TransportResponse resp = executeRequest(operation, req)) {
+            int statusCode = resp.getStatusCode();
 
             switch (statusCode) {
                 case HttpStatus.SC_OK:
@@ -96,6 +290,147 @@ public class ImageAPIClient implements ImageClient {
         }
     }
 
+    /**
+     * Get a single image by calling the GET /images/{id} endpoint
+     *
+     * @param imageId A string containing the id of the image
+     * @return The {@link Image}
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    @Override
+    public Image getImage(String imageId) throws IOException, ImageAPIException {
+
+        validateImageID(imageId);
+
+        URI uri = imageAPIURL.resolve("/images/" + imageId);
+
+        TransportRequest req = new TransportRequest("GET", uri);
+        req.addHeader(serviceTokenHeaderName, serviceTokenProvider.getServiceToken());
+
+        try (TransportResponse resp = executeRequest("getImage", req)) {
+            int statusCode = resp.getStatusCode();
+
+            switch (statusCode) {
+                case HttpStatus.SC_OK:
+                    return parseResponseBody(resp, Image.class);
+                default:
+                    throw new ImageAPIException(formatErrResponse(req, resp, HttpStatus.SC_OK), statusCode);
+            }
+        }
+    }
+
+    /**
+     * Get a single image from a collection.
+     * Lookups in the same collection made within a short window are served together by one listing of the
+     * collection.
+     *
+     * @param collectionID A string containing the collectionID the image belongs to
+     * @param imageId      A string containing the id of the image
+     * @return The {@link Image}
+     * @throws IOException
+     * @throws ImageAPIException with a 404 code if the collection does not contain the image
+     */
+    @Override
+    public Image getImage(String collectionID, String imageId) throws IOException, ImageAPIException {
+        try {
+            return getImageAsync(collectionID, imageId).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while getting image " + imageId);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ImageAPIException) {
+                throw (ImageAPIException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Get a single image from a collection without waiting for it.
+     * Lookups in the same collection made within a short window are served together by one listing of the
+     * collection.
+     *
+     * @param collectionID A string containing the collectionID the image belongs to
+     * @param imageId      A string containing the id of the image
+     * @return A future completed with the {@link Image}
+     */
+    @Override
+    public CompletableFuture<Image> getImageAsync(String collectionID, String imageId) {
+        return batchLoader().load(collectionID, imageId);
+    }
+
+    private synchronized ImageBatchLoader batchLoader() {
+        if (batchLoader == null) {
+            batchLoader = new ImageBatchLoader(this, ImageBatchLoader.DEFAULT_WINDOW,
+                    ImageBatchLoader.DEFAULT_MAX_BATCH_SIZE, ImageBatchLoader.DEFAULT_MIN_LISTING_BATCH_SIZE,
+                    ImageBatchLoader.DEFAULT_MAX_LISTING_PAGES, executors, false);
+        }
+        return batchLoader;
+    }
+
+    /**
+     * Create an image by calling the POST /images endpoint
+     *
+     * @param image The {@link Image} to create, with at least its collection id set
+     * @return The created {@link Image}, including the id assigned by the image API
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    @Override
+    public Image createImage(Image image) throws IOException, ImageAPIException {
+        Args.notNull(image, "image");
+
+        URI uri = imageAPIURL.resolve("/images");
+
+        TransportRequest req = new TransportRequest("POST", uri)
+                .addHeader(serviceTokenHeaderName, serviceTokenProvider.getServiceToken())
+                .setBody(jsonBody(image));
+
+        try (TransportResponse resp = executeRequest("createImage", req)) {
+            int statusCode = resp.getStatusCode();
+
+            switch (statusCode) {
+                case HttpStatus.SC_CREATED:
+                    return parseResponseBody(resp, Image.class);
+                default:
+                    throw new ImageAPIException(formatErrResponse(req, resp, HttpStatus.SC_CREATED), statusCode);
+            }
+        }
+    }
+
+    /**
+     * Update the fields of an image that are set in the given update by calling the PUT /images/{id} endpoint
+     */
+    Image updateImage(String imageId, Image update) throws IOException, ImageAPIException {
+
+        validateImageID(imageId);
+
+        URI uri = imageAPIURL.resolve("/images/" + imageId);
+
+        TransportRequest req = new TransportRequest("PUT", uri)
+                .addHeader(serviceTokenHeaderName, serviceTokenProvider.getServiceToken())
+                .setBody(jsonBody(update));
+
+        try (TransportResponse resp = executeRequest("updateImage", req)) {
+            int statusCode = resp.getStatusCode();
+
+            switch (statusCode) {
+                case HttpStatus.SC_OK:
+                    return parseResponseBody(resp, Image.class);
+                default:
+                    throw new ImageAPIException(formatErrResponse(req, resp, HttpStatus.SC_OK), statusCode);
+            }
+        }
+    }
+
     /**
      * Publish an image by calling the POST /images/{id}/publish endpoint
      *
@@ -111,11 +446,11 @@ public class ImageAPIClient implements ImageClient {
         String path = "/images/" + imageId + "/publish";
         URI uri = imageAPIURL.resolve(path);
 
-        HttpPost req = new HttpPost(uri);
-        req.addHeader(serviceTokenHeaderName, serviceAuthToken);
+        TransportRequest req = new TransportRequest("POST", uri);
+        req.addHeader(serviceTokenHeaderName, serviceTokenProvider.getServiceToken());
 
-        try (CloseableHttpResponse resp = executeRequest(req)) {
-            int statusCode = resp.getStatusLine().getStatusCode();
+        try (TransportResponse resp = executeRequest("publishImage", req)) {
+            int statusCode = resp.getStatusCode();
 
             switch (statusCode) {
                 case HttpStatus.SC_NO_CONTENT:
@@ -126,37 +461,424 @@ public class ImageAPIClient implements ImageClient {
         }
     }
 
+    /**
+     * Publish every publishable image in the given collection.
+     * The listing is fetched page by page, and the images on each page are published while the next page is being
+     * fetched, at most {@link PublishOptions#getParallelism()} at once. The publishes run on a bounded pool of
+     * threads shared by every call on this client and the clients derived from it, rather than on threads started
+     * per call. If a listing page cannot be fetched the exception is thrown
+     * once the publishes already in flight have completed, with any of their failures attached as suppressed
+     * exceptions.
+     *
+     * @param collectionID A string containing the collectionID to publish
+     * @param options      The {@link PublishOptions} controlling paging, parallelism and which states are published
+     * @return A {@link PublishSummary} of the images published, skipped and failed
+     * @throws IOException
+     * @throws ImageAPIException if a page of the collection listing could not be fetched
+     */
+    @Override
+    public PublishSummary publishCollection(String collectionID, PublishOptions options)
+            throws IOException, ImageAPIException {
+
+        Args.check(StringUtils.isNotEmpty(collectionID), "a collection id must be provided.");
+        Args.notNull(options, "publish options");
+
+        long start = System.nanoTime();
+        long listingNanos = 0;
+        int pagesFetched = 0;
+        int imagesListed = 0;
+
+        Set<String> seen = new HashSet<>();
+        List<String> published = Collections.synchronizedList(new ArrayList<>());
+        List<String> skipped = new ArrayList<>();
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+
+        int parallelism = options.getParallelism();
+        Semaphore inFlight = new Semaphore(parallelism);
+        ExecutorService executor = executors.requestWorkers();
+
+        info().data("collection_id", collectionID).log("publishing image-api collection");
+
+        try {
+            int offset = 0;
+            while (true) {
+                long pageStart = System.nanoTime();
+                Images page = getImages(collectionID, offset, options.getPageSize());
+                listingNanos += System.nanoTime() - pageStart;
+                pagesFetched++;
+
+                List<Image> items = page.getItems() == null ? Collections.<Image>emptyList() : page.getItems();
+                imagesListed += items.size();
+
+                for (Image image : items) {
+                    String imageId = image.getId();
+                    if (StringUtils.isEmpty(imageId) || !seen.add(imageId)) {
+                        continue;
+                    }
+
+                    if (!options.getPublishableStates().contains(image.getState())) {
+                        skipped.add(imageId);
+                        continue;
+                    }
+
+                    inFlight.acquire();
+                    executor.execute(() -> {
+                        try {
+                            publishImage(imageId);
+                            published.add(imageId);
+                        } catch (IOException | ImageAPIException | RuntimeException e) {
+                            failures.put(imageId, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+
+                offset += items.size();
+                if (items.isEmpty() || isLastPage(page, offset, options.getPageSize())) {
+                    break;
+                }
+            }
+
+            inFlight.acquire(parallelism);
+        } catch (IOException | ImageAPIException | RuntimeException e) {
+            // Let the publishes already started finish, so that their failures are reported with the listing's
+            try {
+                inFlight.acquire(parallelism);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                e.addSuppressed(interrupted);
+            }
+            failures.values().forEach(e::addSuppressed);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while publishing collection " + collectionID);
+        }
+
+        PublishSummary summary = new PublishSummary(collectionID, imagesListed, pagesFetched,
+                new ArrayList<>(published), skipped, new HashMap<>(failures),
+                Duration.ofNanos(listingNanos), Duration.ofNanos(System.nanoTime() - start));
+
+        info().data("collection_id", collectionID)
+                .data("published", summary.getPublished().size())
+                .data("skipped", summary.getSkipped().size())
+                .data("failed", summary.getFailures().size())
+                .log("publish image-api collection completed");
+
+        return summary;
+    }
+
+    static boolean isLastPage(Images page, int nextOffset, int pageSize) {
+        if (page.getTotalCount() != null) {
+            return nextOffset >= page.getTotalCount();
+        }
+        return page.getItems().size() < pageSize;
+    }
+
+    /**
+     * Stream image content, such as a download variant href or an upload path, to the given channel.
+     * The content is copied through a fixed-size buffer, so memory use does not depend on the size of the image.
+     *
+     * @param href   The location of the content, resolved against the image API URL if relative
+     * @param target The channel to write the content to. It is not closed.
+     * @return The number of bytes written
+     * @throws IOException if the number of bytes received does not match the Content-Length
+     * @throws ImageAPIException
+     */
+    @Override
+    public long download(String href, WritableByteChannel target) throws IOException, ImageAPIException {
+        Args.notBlank(href, "href");
+        Args.notNull(target, "target");
+
+        return new ImageDownloader(this, executors).download(resolve(href), target, DownloadOptions.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Stream image content to a file with the default {@link DownloadOptions}.
+     *
+     * @param href   The location of the content, resolved against the image API URL if relative
+     * @param target The file to write the content to
+     * @return The size of the downloaded file
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    @Override
+    public long download(String href, Path target) throws IOException, ImageAPIException {
+        return download(href, target, new DownloadOptions());
+    }
+
+    /**
+     * Stream image content to a file.
+     * Content larger than one range is fetched as several ranges in parallel, on the bounded pool of threads shared
+     * by every call on this client rather than on threads started per call. If a transfer fails the file is left
+     * holding the bytes received in order, with the content's ETag in a file beside it, so that calling again with
+     * resuming enabled continues from there if the content has not changed. Redirects are followed, but the service
+     * token is only sent to the image API's own host.
+     *
+     * @param href    The location of the content, resolved against the image API URL if relative
+     * @param target  The file to write the content to
+     * @param options The {@link DownloadOptions} controlling buffering, parallelism and resuming
+     * @return The size of the downloaded file
+     * @throws IOException if the number of bytes received does not match the length the server reported
+     * @throws ImageAPIException
+     */
+    @Override
+    public long download(String href, Path target, DownloadOptions options) throws IOException, ImageAPIException {
+        Args.notBlank(href, "href");
+        Args.notNull(target, "target");
+        Args.notNull(options, "options");
+
+        return new ImageDownloader(this, executors).download(resolve(href), target, options);
+    }
+
+    /**
+     * Upload the content of an image from a file, then record where it was uploaded on the image.
+     * The file is streamed with chunked transfer encoding through a fixed-size buffer, so memory use does not depend
+     * on the size of the file.
+     *
+     * @param imageId A string containing the id of the image the content belongs to
+     * @param href    The location to upload the content to, resolved against the image API URL if relative
+     * @param source  The file containing the content
+     * @param options The {@link UploadOptions} controlling buffering and progress notifications
+     * @return The updated {@link Image}, with its upload path set
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    @Override
+    public Image uploadImage(String imageId, String href, Path source, UploadOptions options)
+            throws IOException, ImageAPIException {
+
+        validateImageID(imageId);
+        Args.notBlank(href, "href");
+        Args.notNull(source, "source");
+        Args.notNull(options, "upload options");
+
+        return new ImageUploader(this, executors, options).upload(imageId, resolve(href), source);
+    }
+
+    /**
+     * Upload the content of an image from a channel, then record where it was uploaded on the image.
+     * The channel is read to its end and closed. As it cannot be read again, the upload is not retried.
+     *
+     * @param imageId A string containing the id of the image the content belongs to
+     * @param href    The location to upload the content to, resolved against the image API URL if relative
+     * @param source  The channel to read the content from
+     * @param options The {@link UploadOptions} controlling buffering and progress notifications
+     * @return The updated {@link Image}, with its upload path set
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    @Override
+    public Image uploadImage(String imageId, String href, ReadableByteChannel source, UploadOptions options)
+            throws IOException, ImageAPIException {
+
+        validateImageID(imageId);
+        Args.notBlank(href, "href");
+        Args.notNull(source, "source");
+        Args.notNull(options, "upload options");
+
+        return new ImageUploader(this, executors, options).upload(imageId, resolve(href), source);
+    }
+
+    /**
+     * Upload the content of several images from files, at most {@link UploadOptions#getParallelism()} at once.
+     * The uploads run on the bounded pool of threads shared by every call on this client, rather than on threads
+     * started per call.
+     * A failure to upload one file does not stop the others. Each image may only be uploaded once in a call.
+     *
+     * @param uploads The files to upload
+     * @param options The {@link UploadOptions} controlling buffering, parallelism and progress notifications
+     * @return An {@link UploadSummary} of the images uploaded and failed
+     * @throws IOException if interrupted while waiting for the uploads
+     */
+    @Override
+    public UploadSummary uploadImages(List<ImageUpload> uploads, UploadOptions options) throws IOException {
+        Args.notNull(uploads, "uploads");
+        Args.notNull(options, "upload options");
+
+        return new ImageUploader(this, executors, options).uploadAll(uploads);
+    }
+
+    /**
+     * Get a client that authenticates with the given token and shares this client's connection pool and
+     * background threads. The returned client starts no threads of its own, and closing it leaves the shared pool
+     * and threads open. It does not use this client's {@link SnapshotStore}.
+     *
+     * @param serviceAuthToken The authentication token for the image API
+     * @return An {@link ImageClient} using the given token
+     */
+    @Override
+    public ImageClient withServiceAuthToken(String serviceAuthToken) {
+        return withServiceTokenProvider(() -> serviceAuthToken);
+    }
+
+    /**
+     * Get a client that asks the given provider for the authentication token on each request and shares this
+     * client's connection pool and background threads. The returned client starts no threads of its own, and
+     * closing it leaves the shared pool and threads open.
+     * The returned client does not use this client's {@link SnapshotStore}, as the listings another token can see
+     * may differ; give it a store of its own with {@link #withSnapshotStore(SnapshotStore)}.
+     *
+     * @param serviceTokenProvider The provider of the authentication token for the image API
+     * @return An {@link ImageClient} using the given token provider
+     */
+    @Override
+    public ImageClient withServiceTokenProvider(ServiceTokenProvider serviceTokenProvider) {
+        return new ImageAPIClient(imageAPIURL, serviceTokenProvider, transport, executors, false, null);
+    }
+
+    /**
+     * Get a client that serves collection listings from the given snapshot store and shares this client's
+     * connection pool. {@link #getImages(String)} fetches a collection's listing only when the store has no snapshot
+     * of it. Otherwise the snapshot is returned straight away, and if it is older than the store's revalidation age
+     * it is revalidated with the image API in the background, so a restarted client is ready without listing every
+     * collection again. Paged listings are always fetched from the image API.
+     * The store is keyed by collection only, so use a separate store for each service token. The returned client
+     * revalidates snapshots on a thread shared with this client, and closing it does not close the shared pool.
+     *
+     * @param snapshotStore The {@link SnapshotStore} to keep listings in
+     * @return An {@link ImageClient} using the given snapshot store
+     */
+    @Override
+    public ImageClient withSnapshotStore(SnapshotStore snapshotStore) {
+        Args.notNull(snapshotStore, "snapshot store");
+        return new ImageAPIClient(imageAPIURL, serviceTokenProvider, transport, executors, false, snapshotStore);
+    }
+
+    /**
+     * Create a request for image content. The service token is only sent when the content is on the image API's
+     * own host, so it is not leaked to a download host or CDN. The transport does not follow redirects for the
+     * request, as it would send the token on to the new host; send it with {@link #executeContentRequest}.
+     */
+    TransportRequest contentRequest(String method, URI uri) throws IOException {
+        TransportRequest req = new TransportRequest(method, uri).setRedirectsEnabled(false);
+        if (sameOrigin(imageAPIURL, uri)) {
+            req.addHeader(serviceTokenHeaderName, serviceTokenProvider.getServiceToken());
+        }
+        return req;
+    }
+
+    /**
+     * Execute a request made by {@link #contentRequest}, following redirects of GET and HEAD requests. Each
+     * redirected request keeps the original headers, but carries the service token only if its own host is the
+     * image API's.
+     */
+    TransportResponse executeContentRequest(String operation, TransportRequest req) throws IOException {
+        for (int redirects = 0; ; redirects++) {
+            TransportResponse resp = executeRequest(operation, req);
+            String location = resp.getFirstHeader("Location");
+            if (location == null || !isRedirect(resp.getStatusCode())
+                    || !("GET".equals(req.getMethod()) || "HEAD".equals(req.getMethod()))) {
+                return resp;
+            }
+            resp.close();
+
+            if (redirects == MAX_CONTENT_REDIRECTS) {
+                throw new IOException(String.format("more than %s redirects for %s", MAX_CONTENT_REDIRECTS, req));
+            }
+
+            TransportRequest redirect = contentRequest(req.getMethod(), req.getURI().resolve(location));
+            for (Map.Entry<String, String> header : req.getHeaders().entrySet()) {
+                if (!serviceTokenHeaderName.equalsIgnoreCase(header.getKey())) {
+                    redirect.addHeader(header.getKey(), header.getValue());
+                }
+            }
+            req = redirect;
+        }
+    }
+
+    private static boolean isRedirect(int statusCode) {
+        switch (statusCode) {
+            case HttpStatus.SC_MOVED_PERMANENTLY:
+            case HttpStatus.SC_MOVED_TEMPORARILY:
+            case HttpStatus.SC_SEE_OTHER:
+            case HttpStatus.SC_TEMPORARY_REDIRECT:
+            case 308:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    URI resolve(String href) {
+        return imageAPIURL.resolve(href);
+    }
+
+    private static boolean sameOrigin(URI a, URI b) {
+        return StringUtils.equalsIgnoreCase(a.getScheme(), b.getScheme())
+                && StringUtils.equalsIgnoreCase(a.getHost(), b.getHost())
+                && effectivePort(a) == effectivePort(b);
+    }
+
+    private static int effectivePort(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
     private void validateImageID(String imageID) {
         Args.check(StringUtils.isNotEmpty(imageID), "an image id must be provided.");
     }
 
-    private <T> T parseResponseBody(CloseableHttpResponse response, Class<T> type) throws IOException {
-        HttpEntity entity = response.getEntity();
-        String responseString = EntityUtils.toString(entity);
-        return json.readValue(responseString, type);
+    private static RequestBody jsonBody(Object value) throws IOException {
+        return new RequestBody("application/json", json.writeValueAsBytes(value));
     }
 
-    private String formatErrResponse(HttpRequestBase httpRequest, CloseableHttpResponse response, int expectedStatus) {
+    private <T> T parseResponseBody(TransportResponse response, Class<T> type) throws IOException {
+        ImageAPIEvents.Parse event = ImageAPIEvents.beginParse();
+        byte[] body = IOUtils.toByteArray(response.getBody());
+        T value = json.readValue(body, type);
+        event.complete(type.getSimpleName(), countItems(value), body.length);
+        return value;
+    }
+
+    private static int countItems(Object value) {
+        if (value instanceof Images) {
+            List<Image> items = ((Images) value).getItems();
+            return items == null ? 0 : items.size();
+        }
+        return 1;
+    }
+
+    String formatErrResponse(TransportRequest httpRequest, TransportResponse response, int expectedStatus) {
         return String.format("the image api returned a %s response for %s (expected %s)",
-                response.getStatusLine().getStatusCode(),
+                response.getStatusCode(),
                 httpRequest.getURI(),
                 expectedStatus);
     }
 
-    private CloseableHttpResponse executeRequest(HttpUriRequest req) throws IOException {
-        info().beginHTTP(req).log("executing image-api request");
-        CloseableHttpResponse resp = client.execute(req);
-        info().endHTTP(req, resp).log("execute image-api request compeleted");
+    TransportResponse executeRequest(String operation, TransportRequest req) throws IOException {
+        ImageAPIEvents.Request event = ImageAPIEvents.beginRequest();
+        TransportResponse resp = null;
+        try {
+            resp = transport.execute(req);
+        } finally {
+            event.complete(operation, req.getURI().getPath(),
+                    resp == null ? 0 : resp.getStatusCode(),
+                    resp == null ? 0 : resp.getRetries(),
+                    resp == null ? -1 : resp.getContentLength());
+        }
         return resp;
     }
 
     /**
-     * Close the http client used by the ImageAPIClient
+     * Close the transport and background threads used by the ImageAPIClient.
+     * Clients returned by {@link #withServiceAuthToken(String)} leave the shared transport and threads open.
      *
      * @throws IOException
      */
     @Override
     public void close() throws IOException {
-        client.close();
+        synchronized (this) {
+            if (batchLoader != null) {
+                batchLoader.close();
+            }
+        }
+        if (ownsShared) {
+            executors.close();
+            transport.close();
+        }
     }
 }
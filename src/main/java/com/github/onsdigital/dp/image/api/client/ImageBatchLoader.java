@@ -0,0 +1,229 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import com.github.onsdigital.dp.image.api.client.model.Images;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
+import org.apache.http.util.Args;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces lookups of individual images within the same collection.
+ * Lookups arriving within the batching window are served together by a paged listing of the collection, and
+ * lookups of the same image within a batch share one result. A listing only pays off for several images, so a
+ * batch smaller than the minimum listing batch size is looked up image by image. The listing stops after a few
+ * pages, and images it has not found by then are also looked up one by one, so one lookup never scans a whole
+ * large collection.
+ */
+public class ImageBatchLoader implements Closeable {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(10);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final int DEFAULT_MIN_LISTING_BATCH_SIZE = 4;
+    public static final int DEFAULT_MAX_LISTING_PAGES = 2;
+
+    private final ImageClient client;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final int minListingBatchSize;
+    private final int maxListingPages;
+
+    private final Map<String, Map<String, CompletableFuture<Image>>> pending = new HashMap<>();
+    private final ClientExecutors executors;
+    private final boolean ownsExecutors;
+    private boolean closed;
+
+    /**
+     * Create a new instance of ImageBatchLoader
+     *
+     * @param client       The client used to list collections
+     * @param window       How long to wait for further lookups before loading a batch
+     * @param maxBatchSize The number of distinct images that causes a batch to load without waiting
+     */
+    public ImageBatchLoader(ImageClient client, Duration window, int maxBatchSize) {
+        this(client, window, maxBatchSize, DEFAULT_MIN_LISTING_BATCH_SIZE, DEFAULT_MAX_LISTING_PAGES,
+                new ClientExecutors(), true);
+    }
+
+    /**
+     * Create a new instance of ImageBatchLoader with the default window and batch size
+     *
+     * @param client The client used to list collections
+     */
+    public ImageBatchLoader(ImageClient client) {
+        this(client, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    ImageBatchLoader(ImageClient client, Duration window, int maxBatchSize, int minListingBatchSize,
+                     int maxListingPages, ClientExecutors executors, boolean ownsExecutors) {
+        Args.notNull(client, "image client");
+        Args.notNull(window, "batch window");
+        Args.check(!window.isNegative(), "batch window must not be negative");
+        Args.positive(maxBatchSize, "max batch size");
+        Args.positive(minListingBatchSize, "min listing batch size");
+        Args.positive(maxListingPages, "max listing pages");
+        Args.notNull(executors, "executors");
+
+        this.client = client;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.minListingBatchSize = minListingBatchSize;
+        this.maxListingPages = maxListingPages;
+        this.executors = executors;
+        this.ownsExecutors = ownsExecutors;
+    }
+
+    /**
+     * Look up an image in a collection as part of the next batch for that collection.
+     * The returned future fails with an {@link ImageAPIException} with a 404 code if the collection does not
+     * contain the image, or with the exception thrown while listing the collection.
+     *
+     * @param collectionID A string containing the collectionID the image belongs to
+     * @param imageId      A string containing the id of the image
+     * @return A future completed with the {@link Image}
+     */
+    public CompletableFuture<Image> load(String collectionID, String imageId) {
+        Args.check(StringUtils.isNotEmpty(collectionID), "a collection id must be provided.");
+        Args.check(StringUtils.isNotEmpty(imageId), "an image id must be provided.");
+
+        synchronized (this) {
+            try {
+                if (closed) {
+                    throw new IllegalStateException("image batch loader is closed");
+                }
+
+                Map<String, CompletableFuture<Image>> batch = pending.get(collectionID);
+                if (batch == null) {
+                    Map<String, CompletableFuture<Image>> newBatch = new LinkedHashMap<>();
+                    executors.batchScheduler().schedule(() -> dispatch(collectionID, newBatch),
+                            windowNanos, TimeUnit.NANOSECONDS);
+                    pending.put(collectionID, newBatch);
+                    batch = newBatch;
+                }
+
+                CompletableFuture<Image> future = batch.computeIfAbsent(imageId, id -> new CompletableFuture<>());
+                if (batch.size() >= maxBatchSize) {
+                    dispatch(collectionID, batch);
+                }
+                return future;
+            } catch (IllegalStateException | RejectedExecutionException e) {
+                CompletableFuture<Image> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+    }
+
+    private synchronized void dispatch(String collectionID, Map<String, CompletableFuture<Image>> batch) {
+        if (pending.get(collectionID) != batch) {
+            return;
+        }
+        pending.remove(collectionID);
+        try {
+            executors.batchLoaders().execute(() -> loadBatch(collectionID, batch));
+        } catch (IllegalStateException | RejectedExecutionException e) {
+            for (CompletableFuture<Image> future : batch.values()) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void loadBatch(String collectionID, Map<String, CompletableFuture<Image>> batch) {
+        if (batch.size() < minListingBatchSize) {
+            batch.forEach((imageId, future) -> lookUp(collectionID, imageId, future));
+            return;
+        }
+
+        Map<String, CompletableFuture<Image>> remaining = new LinkedHashMap<>(batch);
+        boolean listedAll = false;
+        try {
+            int offset = 0;
+            for (int pages = 0; pages < maxListingPages && !remaining.isEmpty(); pages++) {
+                Images page = client.getImages(collectionID, offset, ImageAPIClient.LISTING_PAGE_SIZE);
+                List<Image> items = page.getItems() == null ? Collections.<Image>emptyList() : page.getItems();
+
+                for (Image image : items) {
+                    CompletableFuture<Image> future = remaining.remove(image.getId());
+                    if (future != null) {
+                        future.complete(image);
+                    }
+                }
+
+                offset += items.size();
+                if (items.isEmpty() || ImageAPIClient.isLastPage(page, offset, ImageAPIClient.LISTING_PAGE_SIZE)) {
+                    listedAll = true;
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            for (CompletableFuture<Image> future : remaining.values()) {
+                future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (Map.Entry<String, CompletableFuture<Image>> missing : remaining.entrySet()) {
+            if (listedAll) {
+                missing.getValue().completeExceptionally(notFound(collectionID, missing.getKey()));
+            } else {
+                lookUpLater(collectionID, missing.getKey(), missing.getValue());
+            }
+        }
+    }
+
+    /**
+     * Look up an image the listing stopped short of, on another loader thread if one is free
+     */
+    private void lookUpLater(String collectionID, String imageId, CompletableFuture<Image> future) {
+        try {
+            executors.batchLoaders().execute(() -> lookUp(collectionID, imageId, future));
+        } catch (IllegalStateException | RejectedExecutionException e) {
+            lookUp(collectionID, imageId, future);
+        }
+    }
+
+    private void lookUp(String collectionID, String imageId, CompletableFuture<Image> future) {
+        try {
+            Image image = client.getImage(imageId);
+            if (image == null || !collectionID.equals(image.getCollectionId())) {
+                throw notFound(collectionID, imageId);
+            }
+            future.complete(image);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static ImageAPIException notFound(String collectionID, String imageId) {
+        return new ImageAPIException(String.format("image %s not found in collection %s", imageId, collectionID),
+                HttpStatus.SC_NOT_FOUND);
+    }
+
+    /**
+     * Stop accepting lookups. Batches already waiting are still loaded.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (Map.Entry<String, Map<String, CompletableFuture<Image>>> batch :
+                    new HashMap<>(pending).entrySet()) {
+                dispatch(batch.getKey(), batch.getValue());
+            }
+        }
+        if (ownsExecutors) {
+            executors.close();
+        }
+    }
+}
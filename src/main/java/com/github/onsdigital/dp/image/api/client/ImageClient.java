@@ -1,13 +1,31 @@
 package com.github.onsdigital.dp.image.api.client;
 
 import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import com.github.onsdigital.dp.image.api.client.model.Image;
 import com.github.onsdigital.dp.image.api.client.model.Images;
+import com.github.onsdigital.dp.image.api.client.snapshot.SnapshotStore;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface representing an Image API Client
+ * <p>
+ * Methods added since the interface was first published have default implementations, so that existing
+ * implementations keep compiling. Those that cannot be built from the other methods throw
+ * {@link UnsupportedOperationException}.
  */
 public interface ImageClient extends Closeable {
 
@@ -22,6 +40,81 @@ public interface ImageClient extends Closeable {
      */
     Images getImages(String collectionID) throws IOException, ImageAPIException;
 
+    /**
+     * Get a single page of a collection of images
+     * If the optional collectionId is supplied only images with a matching collection_id are returned.
+     *
+     * @param collectionID An optional string containing a collectionID to limit the results
+     * @param offset       The index of the first image to return
+     * @param limit        The maximum number of images to return
+     * @return An {@link Images} object containing a page of Image objects
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default Images getImages(String collectionID, int offset, int limit) throws IOException, ImageAPIException {
+        throw new UnsupportedOperationException("getImages with paging is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Get a single image
+     *
+     * @param imageId A string containing the id of the image
+     * @return The {@link Image}
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default Image getImage(String imageId) throws IOException, ImageAPIException {
+        throw new UnsupportedOperationException("getImage is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Get a single image from a collection.
+     * Lookups in the same collection made close together may be served by one listing of the collection.
+     *
+     * @param collectionID A string containing the collectionID the image belongs to
+     * @param imageId      A string containing the id of the image
+     * @return The {@link Image}
+     * @throws IOException
+     * @throws ImageAPIException with a 404 code if the collection does not contain the image
+     */
+    default Image getImage(String collectionID, String imageId) throws IOException, ImageAPIException {
+        Image image = getImage(imageId);
+        if (image == null || !collectionID.equals(image.getCollectionId())) {
+            throw new ImageAPIException("image " + imageId + " not found in collection " + collectionID, 404);
+        }
+        return image;
+    }
+
+    /**
+     * Get a single image from a collection without waiting for it.
+     * Lookups in the same collection made close together may be served by one listing of the collection.
+     *
+     * @param collectionID A string containing the collectionID the image belongs to
+     * @param imageId      A string containing the id of the image
+     * @return A future completed with the {@link Image}
+     */
+    default CompletableFuture<Image> getImageAsync(String collectionID, String imageId) {
+        CompletableFuture<Image> future = new CompletableFuture<>();
+        try {
+            future.complete(getImage(collectionID, imageId));
+        } catch (IOException | ImageAPIException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Create an image.
+     *
+     * @param image The {@link Image} to create, with at least its collection id set
+     * @return The created {@link Image}, including the id assigned by the image API
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default Image createImage(Image image) throws IOException, ImageAPIException {
+        throw new UnsupportedOperationException("createImage is not supported by " + getClass().getName());
+    }
+
     /**
      * Publish the image for the given image ID.
      *
@@ -31,4 +124,170 @@ public interface ImageClient extends Closeable {
      */
     void publishImage(String imageId) throws IOException, ImageAPIException;
 
+    /**
+     * Publish every publishable image in the given collection.
+     * Images already published are skipped, and a failure to publish one image does not stop the others.
+     * The default implementation lists the collection with {@link #getImages(String)} and publishes its images one
+     * at a time with {@link #publishImage(String)}, ignoring the paging and parallelism options.
+     *
+     * @param collectionID A string containing the collectionID to publish
+     * @param options      The {@link PublishOptions} controlling paging, parallelism and which states are published
+     * @return A {@link PublishSummary} of the images published, skipped and failed
+     * @throws IOException
+     * @throws ImageAPIException if a page of the collection listing could not be fetched
+     */
+    default PublishSummary publishCollection(String collectionID, PublishOptions options)
+            throws IOException, ImageAPIException {
+        long start = System.nanoTime();
+        Images listing = getImages(collectionID);
+        Duration listingDuration = Duration.ofNanos(System.nanoTime() - start);
+
+        List<Image> items = listing.getItems() == null ? Collections.<Image>emptyList() : listing.getItems();
+        Set<String> seen = new HashSet<>();
+        List<String> published = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        Map<String, Exception> failures = new HashMap<>();
+
+        for (Image image : items) {
+            String imageId = image.getId();
+            if (imageId == null || imageId.isEmpty() || !seen.add(imageId)) {
+                continue;
+            }
+            if (!options.getPublishableStates().contains(image.getState())) {
+                skipped.add(imageId);
+                continue;
+            }
+            try {
+                publishImage(imageId);
+                published.add(imageId);
+            } catch (IOException | ImageAPIException | RuntimeException e) {
+                failures.put(imageId, e);
+            }
+        }
+
+        return new PublishSummary(collectionID, items.size(), 1, published, skipped, failures, listingDuration,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Stream image content, such as a download variant href or an upload path, to the given channel.
+     *
+     * @param href   The location of the content, resolved against the image API URL if relative
+     * @param target The channel to write the content to. It is not closed.
+     * @return The number of bytes written
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default long download(String href, WritableByteChannel target) throws IOException, ImageAPIException {
+        throw new UnsupportedOperationException("download is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Stream image content to a file with the default {@link DownloadOptions}.
+     *
+     * @param href   The location of the content, resolved against the image API URL if relative
+     * @param target The file to write the content to
+     * @return The size of the downloaded file
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default long download(String href, Path target) throws IOException, ImageAPIException {
+        return download(href, target, new DownloadOptions());
+    }
+
+    /**
+     * Stream image content to a file, resuming a partial file and fetching large content in parallel ranges as
+     * the options allow.
+     *
+     * @param href    The location of the content, resolved against the image API URL if relative
+     * @param target  The file to write the content to
+     * @param options The {@link DownloadOptions} controlling buffering, parallelism and resuming
+     * @return The size of the downloaded file
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default long download(String href, Path target, DownloadOptions options) throws IOException, ImageAPIException {
+        throw new UnsupportedOperationException("download is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Upload the content of an image from a file through a fixed-size buffer, then record where it was uploaded on
+     * the image.
+     *
+     * @param imageId A string containing the id of the image the content belongs to
+     * @param href    The location to upload the content to, resolved against the image API URL if relative
+     * @param source  The file containing the content
+     * @param options The {@link UploadOptions} controlling buffering and progress notifications
+     * @return The updated {@link Image}, with its upload path set
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default Image uploadImage(String imageId, String href, Path source, UploadOptions options)
+            throws IOException, ImageAPIException {
+        throw new UnsupportedOperationException("uploadImage is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Upload the content of an image from a channel through a fixed-size buffer, then record where it was uploaded
+     * on the image. The channel is read to its end and closed.
+     *
+     * @param imageId A string containing the id of the image the content belongs to
+     * @param href    The location to upload the content to, resolved against the image API URL if relative
+     * @param source  The channel to read the content from
+     * @param options The {@link UploadOptions} controlling buffering and progress notifications
+     * @return The updated {@link Image}, with its upload path set
+     * @throws IOException
+     * @throws ImageAPIException
+     */
+    default Image uploadImage(String imageId, String href, ReadableByteChannel source, UploadOptions options)
+            throws IOException, ImageAPIException {
+        throw new UnsupportedOperationException("uploadImage is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Upload the content of several images from files in parallel.
+     * A failure to upload one file does not stop the others. Each image may only be uploaded once in a call.
+     *
+     * @param uploads The files to upload
+     * @param options The {@link UploadOptions} controlling buffering, parallelism and progress notifications
+     * @return An {@link UploadSummary} of the images uploaded and failed
+     * @throws IOException
+     */
+    default UploadSummary uploadImages(List<ImageUpload> uploads, UploadOptions options) throws IOException {
+        throw new UnsupportedOperationException("uploadImages is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Get a client that authenticates with the given token and shares this client's underlying connections.
+     *
+     * @param serviceAuthToken The authentication token for the image API
+     * @return An {@link ImageClient} using the given token
+     */
+    default ImageClient withServiceAuthToken(String serviceAuthToken) {
+        return withServiceTokenProvider(() -> serviceAuthToken);
+    }
+
+    /**
+     * Get a client that asks the given provider for the authentication token on each request and shares this
+     * client's underlying connections.
+     *
+     * @param serviceTokenProvider The provider of the authentication token for the image API
+     * @return An {@link ImageClient} using the given token provider
+     */
+    default ImageClient withServiceTokenProvider(ServiceTokenProvider serviceTokenProvider) {
+        throw new UnsupportedOperationException("withServiceTokenProvider is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Get a client that serves collection listings from snapshots in the given store, revalidating them with the
+     * image API in the background, and shares this client's underlying connections. Snapshots are keyed by collection
+     * only, so use a separate store for each service token.
+     *
+     * @param snapshotStore The {@link SnapshotStore} to keep listings in
+     * @return An {@link ImageClient} using the given snapshot store
+     */
+    default ImageClient withSnapshotStore(SnapshotStore snapshotStore) {
+        throw new UnsupportedOperationException("withSnapshotStore is not supported by " + getClass().getName());
+    }
+
 }
@@ -0,0 +1,340 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import com.github.onsdigital.dp.image.api.client.transport.TransportRequest;
+import com.github.onsdigital.dp.image.api.client.transport.TransportResponse;
+import org.apache.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams image content to a channel or file through a fixed-size buffer, so memory use does not depend on the
+ * size of the image. Large files are fetched as several ranges in parallel. File downloads can resume from the end
+ * of a partial file left by an earlier download, using the ETag kept in a file next to it to make sure the content
+ * has not changed since.
+ */
+class ImageDownloader {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (?:(\\d+)-(\\d+)|\\*)/(\\d+|\\*)");
+    private static final String VALIDATOR_SUFFIX = ".etag";
+
+    private final ImageAPIClient client;
+    private final ClientExecutors executors;
+
+    ImageDownloader(ImageAPIClient client, ClientExecutors executors) {
+        this.client = client;
+        this.executors = executors;
+    }
+
+    long download(URI uri, WritableByteChannel target, int bufferSize) throws IOException, ImageAPIException {
+        TransportRequest req = client.contentRequest("GET", uri);
+
+        try (TransportResponse resp = client.executeContentRequest("download", req)) {
+            if (resp.getStatusCode() != HttpStatus.SC_OK) {
+                throw new ImageAPIException(client.formatErrResponse(req, resp, HttpStatus.SC_OK),
+                        resp.getStatusCode());
+            }
+
+            long written = copy(resp, ByteBuffer.allocate(bufferSize), target);
+            validateLength(req, resp.getContentLength(), written);
+            return written;
+        }
+    }
+
+    long download(URI uri, Path target, DownloadOptions options) throws IOException, ImageAPIException {
+        Path validatorFile = validatorFile(target);
+        try (FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            String validator = options.isResume() && Files.exists(validatorFile)
+                    ? new String(Files.readAllBytes(validatorFile), StandardCharsets.UTF_8) : null;
+            long start = validator == null ? 0 : file.size();
+
+            long total = fetch(uri, file, validatorFile, start, validator, options);
+            Files.deleteIfExists(validatorFile);
+            return total;
+        }
+    }
+
+    /**
+     * @return The path of the file holding the ETag of a partial download to the given file
+     */
+    static Path validatorFile(Path target) {
+        return target.resolveSibling(target.getFileName() + VALIDATOR_SUFFIX);
+    }
+
+    /**
+     * Fetch the content from the given position of the file onwards. A partial file is only continued if the
+     * server confirms that its validator still matches the content, otherwise the download starts again.
+     *
+     * @return The length of the content
+     */
+    private long fetch(URI uri, FileChannel file, Path validatorFile, long start, String validator,
+                       DownloadOptions options) throws IOException, ImageAPIException {
+
+        file.truncate(start);
+
+        TransportRequest req = client.contentRequest("GET", uri);
+        if (start > 0) {
+            req.addHeader("Range", "bytes=" + start + "-");
+            req.addHeader("If-Range", validator);
+        } else if (options.getParallelism() > 1) {
+            req.addHeader("Range", range(0, options.getRangeSize()));
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(options.getBufferSize());
+        String etag;
+        long total;
+
+        try (TransportResponse resp = client.executeContentRequest("download", req)) {
+            etag = strongETag(resp);
+            switch (resp.getStatusCode()) {
+                case HttpStatus.SC_OK:
+                    // The server ignored the range, or the content has changed, so the whole of it is being sent.
+                    file.truncate(0);
+                    saveValidator(validatorFile, etag);
+                    long written = copy(resp, buffer, file, 0);
+                    validateLength(req, resp.getContentLength(), written);
+                    return written;
+
+                case HttpStatus.SC_PARTIAL_CONTENT:
+                    if (start > 0 && !validator.equals(etag)) {
+                        // The server did not honour If-Range, so the partial file may be of other content.
+                        start = -1;
+                        total = -1;
+                        break;
+                    }
+                    long[] range = parseContentRange(req, resp);
+                    if (range[0] != start) {
+                        throw new IOException(String.format("the server returned range %s for %s (expected " +
+                                "start %s)", resp.getFirstHeader("Content-Range"), req, start));
+                    }
+                    if (range[2] < 0) {
+                        throw new IOException("the server did not return the total length of " + req);
+                    }
+                    if (start == 0) {
+                        saveValidator(validatorFile, etag);
+                    }
+                    validateLength(req, range[1] - range[0] + 1, copy(resp, buffer, file, start));
+                    start = range[1] + 1;
+                    total = range[2];
+                    break;
+
+                case HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE:
+                    long[] unsatisfied = parseContentRange(req, resp);
+                    if (unsatisfied[2] == start && (start == 0 || validator.equals(etag))) {
+                        // The content is empty, or is unchanged and the partial file already holds all of it.
+                        return start;
+                    }
+                    if (start > 0) {
+                        start = -1;
+                        total = -1;
+                        break;
+                    }
+                    throw new ImageAPIException(client.formatErrResponse(req, resp, HttpStatus.SC_OK),
+                            resp.getStatusCode());
+
+                default:
+                    throw new ImageAPIException(client.formatErrResponse(req, resp, HttpStatus.SC_OK),
+                            resp.getStatusCode());
+            }
+        }
+
+        if (start < 0) {
+            // The partial file could not be shown to match the content, so start again.
+            return fetch(uri, file, validatorFile, 0, null, options);
+        }
+        if (start < total) {
+            fetchRanges(uri, file, start, total, etag, options);
+        }
+        return total;
+    }
+
+    /**
+     * Fetch the remaining ranges in parallel on the client's shared request threads, each written at its own
+     * position in the file. If any range fails the file is truncated to the contiguous prefix that completed, so a
+     * later call can resume from there.
+     */
+    private void fetchRanges(URI uri, FileChannel file, long start, long total, String etag, DownloadOptions options)
+            throws IOException, ImageAPIException {
+
+        List<long[]> ranges = new ArrayList<>();
+        for (long from = start; from < total; from += options.getRangeSize()) {
+            ranges.add(new long[]{from, Math.min(from + options.getRangeSize(), total) - 1});
+        }
+
+        ExecutorService executor = executors.requestWorkers();
+        Semaphore inFlight = new Semaphore(options.getParallelism());
+        List<Future<Void>> results = new ArrayList<>();
+        try {
+            for (long[] range : ranges) {
+                inFlight.acquire();
+                results.add(executor.submit(() -> {
+                    try {
+                        fetchRange(uri, file, range[0], range[1], total, etag, options.getBufferSize());
+                        return null;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+
+            Throwable failure = null;
+            long completed = start;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                    if (failure == null) {
+                        completed = ranges.get(i)[1] + 1;
+                    }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+
+            if (failure != null) {
+                file.truncate(completed);
+                if (failure instanceof ImageAPIException) {
+                    throw (ImageAPIException) failure;
+                }
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw new IOException(failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while downloading " + uri);
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+    }
+
+    /**
+     * Fetch one range, checking that it is of the same content as the first: the same ETag, if the server gave a
+     * strong one, and the same total length.
+     */
+    private void fetchRange(URI uri, FileChannel file, long from, long to, long total, String etag, int bufferSize)
+            throws IOException, ImageAPIException {
+
+        TransportRequest req = client.contentRequest("GET", uri);
+        req.addHeader("Range", "bytes=" + from + "-" + to);
+        if (etag != null) {
+            req.addHeader("If-Range", etag);
+        }
+
+        try (TransportResponse resp = client.executeContentRequest("downloadRange", req)) {
+            if (resp.getStatusCode() == HttpStatus.SC_OK && etag != null) {
+                throw new IOException(String.format("the content of %s changed during the download", uri));
+            }
+            if (resp.getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT) {
+                throw new ImageAPIException(client.formatErrResponse(req, resp, HttpStatus.SC_PARTIAL_CONTENT),
+                        resp.getStatusCode());
+            }
+
+            long[] range = parseContentRange(req, resp);
+            if (range[2] != total || (etag != null && !etag.equals(strongETag(resp)))) {
+                throw new IOException(String.format("the content of %s changed during the download", uri));
+            }
+            if (range[0] != from || range[1] != to) {
+                throw new IOException(String.format("the server returned range %s for %s",
+                        resp.getFirstHeader("Content-Range"), req));
+            }
+
+            validateLength(req, to - from + 1, copy(resp, ByteBuffer.allocate(bufferSize), file, from));
+        }
+    }
+
+    /**
+     * @return The ETag of the response if it is a strong one that can be sent in If-Range, otherwise null
+     */
+    private static String strongETag(TransportResponse resp) {
+        String etag = resp.getFirstHeader("ETag");
+        return etag == null || etag.startsWith("W/") ? null : etag;
+    }
+
+    private static void saveValidator(Path validatorFile, String etag) throws IOException {
+        if (etag == null) {
+            Files.deleteIfExists(validatorFile);
+        } else {
+            Files.write(validatorFile, etag.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static long copy(TransportResponse resp, ByteBuffer buffer, WritableByteChannel target)
+            throws IOException {
+
+        long written = 0;
+        try (ReadableByteChannel source = Channels.newChannel(resp.getBody())) {
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return written;
+    }
+
+    private static long copy(TransportResponse resp, ByteBuffer buffer, FileChannel target, long position)
+            throws IOException {
+
+        long written = 0;
+        try (ReadableByteChannel source = Channels.newChannel(resp.getBody())) {
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer, position + written);
+                }
+                buffer.clear();
+            }
+        }
+        return written;
+    }
+
+    private static void validateLength(TransportRequest req, long expected, long actual) throws IOException {
+        if (expected >= 0 && expected != actual) {
+            throw new IOException(String.format("received %s bytes for %s (expected %s)", actual, req, expected));
+        }
+    }
+
+    /**
+     * @return The first byte, last byte and total length from the Content-Range header, -1 where not given
+     */
+    private static long[] parseContentRange(TransportRequest req, TransportResponse resp) throws IOException {
+        String header = resp.getFirstHeader("Content-Range");
+        Matcher matcher = header == null ? null : CONTENT_RANGE.matcher(header.trim());
+        if (matcher == null || !matcher.matches()) {
+            throw new IOException(String.format("invalid Content-Range %s for %s", header, req));
+        }
+        return new long[]{
+                matcher.group(1) == null ? -1 : Long.parseLong(matcher.group(1)),
+                matcher.group(2) == null ? -1 : Long.parseLong(matcher.group(2)),
+                "*".equals(matcher.group(3)) ? -1 : Long.parseLong(matcher.group(3))
+        };
+    }
+
+    private static String range(long from, long length) {
+        return "bytes=" + from + "-" + (from + length - 1);
+    }
+}
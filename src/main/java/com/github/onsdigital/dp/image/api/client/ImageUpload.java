@@ -0,0 +1,45 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.util.Args;
+
+import java.nio.file.Path;
+
+/**
+ * A file to upload as the content of an image with {@link ImageClient#uploadImages(java.util.List, UploadOptions)}
+ */
+public class ImageUpload {
+
+    private final String imageId;
+    private final String href;
+    private final Path source;
+
+    /**
+     * Create a new instance of ImageUpload
+     *
+     * @param imageId The id of the image the content belongs to
+     * @param href    The location to upload the content to, resolved against the image API URL if relative
+     * @param source  The file containing the content
+     */
+    public ImageUpload(String imageId, String href, Path source) {
+        Args.check(StringUtils.isNotEmpty(imageId), "an image id must be provided.");
+        Args.notBlank(href, "href");
+        Args.notNull(source, "source");
+
+        this.imageId = imageId;
+        this.href = href;
+        this.source = source;
+    }
+
+    public String getImageId() {
+        return imageId;
+    }
+
+    public String getHref() {
+        return href;
+    }
+
+    public Path getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import com.github.onsdigital.dp.image.api.client.transport.RequestBody;
+import com.github.onsdigital.dp.image.api.client.transport.TransportRequest;
+import com.github.onsdigital.dp.image.api.client.transport.TransportResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.util.Args;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static com.github.onsdigital.logging.v2.event.SimpleEvent.info;
+
+/**
+ * Streams image content from a file or channel through a fixed-size buffer, then records where it was uploaded
+ * on the image, so memory use does not depend on the size of the content.
+ */
+class ImageUploader {
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final ImageAPIClient client;
+    private final ClientExecutors executors;
+    private final UploadOptions options;
+
+    ImageUploader(ImageAPIClient client, ClientExecutors executors, UploadOptions options) {
+        this.client = client;
+        this.executors = executors;
+        this.options = options;
+    }
+
+    Image upload(String imageId, URI uri, Path source) throws IOException, ImageAPIException {
+        long totalBytes = Files.size(source);
+        String contentType = Files.probeContentType(source);
+
+        RequestBody body = new RequestBody(contentType == null ? DEFAULT_CONTENT_TYPE : contentType,
+                () -> new ProgressChannel(FileChannel.open(source), imageId, totalBytes), true,
+                options.getBufferSize());
+
+        return upload(imageId, uri, body);
+    }
+
+    Image upload(String imageId, URI uri, ReadableByteChannel source) throws IOException, ImageAPIException {
+        RequestBody body = new RequestBody(DEFAULT_CONTENT_TYPE,
+                () -> new ProgressChannel(source, imageId, -1), false, options.getBufferSize());
+
+        return upload(imageId, uri, body);
+    }
+
+    UploadSummary uploadAll(List<ImageUpload> uploads) throws IOException {
+        Set<String> imageIds = new HashSet<>();
+        for (ImageUpload upload : uploads) {
+            Args.check(imageIds.add(upload.getImageId()), "image %s is uploaded more than once", upload.getImageId());
+        }
+
+        long start = System.nanoTime();
+        Map<String, Image> uploaded = new HashMap<>();
+        Map<String, Exception> failures = new HashMap<>();
+        long bytesUploaded = 0;
+
+        if (uploads.isEmpty()) {
+            return new UploadSummary(uploaded, failures, 0, Duration.ZERO);
+        }
+
+        // The size is taken before each upload, so a file changed or removed afterwards does not fail the summary.
+        long[] sizes = new long[uploads.size()];
+        ExecutorService executor = executors.requestWorkers();
+        Semaphore inFlight = new Semaphore(options.getParallelism());
+        List<Future<Image>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < uploads.size(); i++) {
+                ImageUpload upload = uploads.get(i);
+                int index = i;
+                inFlight.acquire();
+                results.add(executor.submit(() -> {
+                    try {
+                        sizes[index] = Files.size(upload.getSource());
+                        return upload(upload.getImageId(), client.resolve(upload.getHref()), upload.getSource());
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+
+            for (int i = 0; i < uploads.size(); i++) {
+                ImageUpload upload = uploads.get(i);
+                try {
+                    uploaded.put(upload.getImageId(), results.get(i).get());
+                    bytesUploaded += sizes[i];
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(upload.getImageId(), cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while uploading images");
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+
+        UploadSummary summary = new UploadSummary(uploaded, failures, bytesUploaded,
+                Duration.ofNanos(System.nanoTime() - start));
+
+        info().data("uploaded", summary.getUploaded().size())
+                .data("failed", summary.getFailures().size())
+                .data("bytes", summary.getBytesUploaded())
+                .log("upload image-api images completed");
+
+        return summary;
+    }
+
+    private Image upload(String imageId, URI uri, RequestBody body) throws IOException, ImageAPIException {
+        TransportRequest req = client.contentRequest("PUT", uri).setBody(body);
+
+        String path;
+        try (TransportResponse resp = client.executeContentRequest("uploadImage", req)) {
+            switch (resp.getStatusCode()) {
+                case HttpStatus.SC_OK:
+                case HttpStatus.SC_CREATED:
+                case HttpStatus.SC_NO_CONTENT:
+                    String location = resp.getFirstHeader("Location");
+                    path = location == null ? uri.toString() : uri.resolve(location).toString();
+                    break;
+                default:
+                    throw new ImageAPIException(client.formatErrResponse(req, resp, HttpStatus.SC_OK),
+                            resp.getStatusCode());
+            }
+        }
+
+        Image.Upload upload = new Image.Upload();
+        upload.path = path;
+
+        Image update = new Image();
+        update.setUpload(upload);
+
+        Image image = client.updateImage(imageId, update);
+        if (image.getUpload() == null) {
+            image.setUpload(upload);
+        }
+        return image;
+    }
+
+    /**
+     * Reports progress as the transport reads the content into its buffer
+     */
+    private class ProgressChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel delegate;
+        private final String imageId;
+        private final long totalBytes;
+        private long bytesSent;
+
+        private ProgressChannel(ReadableByteChannel delegate, String imageId, long totalBytes) {
+            this.delegate = delegate;
+            this.imageId = imageId;
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int read = delegate.read(dst);
+            if (read > 0) {
+                bytesSent += read;
+                options.getProgressListener().progress(imageId, bytesSent, totalBytes);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.jfr.ImageAPIEvents;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooling connection manager that records the time spent waiting to lease a connection as a JFR event.
+ * Use it in place of {@link PoolingHttpClientConnectionManager} when building a custom HTTP client.
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = super.requestConnection(route, state);
+
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+
+                ImageAPIEvents.Lease lease = ImageAPIEvents.beginLease();
+                boolean leased = false;
+                try {
+                    HttpClientConnection connection = request.get(timeout, timeUnit);
+                    leased = true;
+                    return connection;
+                } finally {
+                    lease.complete(route.getTargetHost().toHostString(), leased);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import org.apache.http.util.Args;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Options controlling how {@link ImageClient#publishCollection(String, PublishOptions)} publishes a collection.
+ */
+public class PublishOptions {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final Set<String> DEFAULT_PUBLISHABLE_STATES =
+            Collections.unmodifiableSet(new HashSet<>(Collections.singletonList("imported")));
+
+    private final int parallelism;
+    private final int pageSize;
+    private final Set<String> publishableStates;
+
+    /**
+     * Create a new instance of PublishOptions
+     *
+     * @param parallelism       The maximum number of publish requests in flight at once
+     * @param pageSize          The number of images requested per listing page
+     * @param publishableStates The image states that will be published, any other state (including already
+     *                          published images) is skipped
+     */
+    public PublishOptions(int parallelism, int pageSize, Set<String> publishableStates) {
+        Args.positive(parallelism, "parallelism");
+        Args.positive(pageSize, "page size");
+        Args.notNull(publishableStates, "publishable states");
+
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+        this.publishableStates = Collections.unmodifiableSet(new HashSet<>(publishableStates));
+    }
+
+    /**
+     * Create a new instance of PublishOptions with the given parallelism and default page size and states
+     *
+     * @param parallelism The maximum number of publish requests in flight at once
+     */
+    public PublishOptions(int parallelism) {
+        this(parallelism, DEFAULT_PAGE_SIZE, DEFAULT_PUBLISHABLE_STATES);
+    }
+
+    public PublishOptions() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public Set<String> getPublishableStates() {
+        return publishableStates;
+    }
+}
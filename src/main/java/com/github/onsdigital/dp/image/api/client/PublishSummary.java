@@ -0,0 +1,90 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of publishing every publishable image in a collection
+ */
+public class PublishSummary {
+
+    private final String collectionId;
+    private final int imagesListed;
+    private final int pagesFetched;
+    private final List<String> published;
+    private final List<String> skipped;
+    private final Map<String, Exception> failures;
+    private final Duration listingDuration;
+    private final Duration totalDuration;
+
+    /**
+     * Create a new instance of PublishSummary
+     *
+     * @param collectionId    The collection that was published
+     * @param imagesListed    The number of images returned by the listing
+     * @param pagesFetched    The number of listing pages requested
+     * @param published       The ids of the images that were published
+     * @param skipped         The ids of the images that were not publishable or already published
+     * @param failures        The ids of the images that failed to publish, mapped to the cause
+     * @param listingDuration The time spent waiting on listing pages
+     * @param totalDuration   The time taken to list and publish the whole collection
+     */
+    public PublishSummary(String collectionId,
+                          int imagesListed,
+                          int pagesFetched,
+                          List<String> published,
+                          List<String> skipped,
+                          Map<String, Exception> failures,
+                          Duration listingDuration,
+                          Duration totalDuration) {
+        this.collectionId = collectionId;
+        this.imagesListed = imagesListed;
+        this.pagesFetched = pagesFetched;
+        this.published = Collections.unmodifiableList(published);
+        this.skipped = Collections.unmodifiableList(skipped);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.listingDuration = listingDuration;
+        this.totalDuration = totalDuration;
+    }
+
+    public String getCollectionId() {
+        return collectionId;
+    }
+
+    public int getImagesListed() {
+        return imagesListed;
+    }
+
+    public int getPagesFetched() {
+        return pagesFetched;
+    }
+
+    public List<String> getPublished() {
+        return published;
+    }
+
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    public Duration getListingDuration() {
+        return listingDuration;
+    }
+
+    public Duration getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return true if every publishable image was published successfully
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
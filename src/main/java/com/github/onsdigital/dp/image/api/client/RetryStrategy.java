@@ -1,18 +1,44 @@
 package com.github.onsdigital.dp.image.api.client;
 
+import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.ServiceUnavailableRetryStrategy;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.protocol.HttpContext;
 
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
 /**
  * Custom implementation of ServiceUnavailableRetryStrategy to retry any HTTP 5xx responses.
+ * <p>
+ * It is also the retry handler for I/O errors, so that every transport retries the same failures. A request is retried
+ * when its connection fails only if its method is idempotent, as HttpClient's standard handler does, or if it was
+ * never sent, so a POST the server may have acted on is not sent twice. Errors that another attempt cannot fix, such
+ * as an unknown host, a refused connection or a timeout, are not retried.
  */
-public class RetryStrategy implements ServiceUnavailableRetryStrategy {
+public class RetryStrategy implements ServiceUnavailableRetryStrategy, HttpRequestRetryHandler {
 
     public static final int DEFAULT_MAX_RETRIES = 3;
     public static final int DEFAULT_RETRY_INTERVAL_MS = 20;
 
+    /**
+     * Name of the {@link HttpContext} attribute holding the number of times the request has been retried
+     */
+    public static final String RETRY_COUNT_ATTRIBUTE = "image-api.retry-count";
+
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(
+            Arrays.asList("GET", "HEAD", "PUT", "DELETE", "OPTIONS", "TRACE"));
+
     private final int maxRetries;
     private final long retryIntervalMs;
 
@@ -27,8 +53,73 @@ public class RetryStrategy implements ServiceUnavailableRetryStrategy {
 
     @Override
     public boolean retryRequest(HttpResponse response, int executionCount, HttpContext context) {
-        return executionCount <= maxRetries &&
-                response.getStatusLine().getStatusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+        boolean retry = retryRequest(response.getStatusLine().getStatusCode(), executionCount);
+        if (retry) {
+            countRetry(context);
+        }
+        return retry;
+    }
+
+    @Override
+    public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+        HttpClientContext clientContext = context == null ? null : HttpClientContext.adapt(context);
+        HttpRequest request = clientContext == null ? null : clientContext.getRequest();
+        String method = request == null ? null : request.getRequestLine().getMethod();
+        boolean requestSent = clientContext == null || clientContext.isRequestSent();
+        boolean retry = retryRequest(exception, method, requestSent, executionCount);
+        if (retry) {
+            countRetry(context);
+        }
+        return retry;
+    }
+
+    /**
+     * Determine whether a request should be retried, for transports that do not use HttpClient 4
+     *
+     * @param statusCode     The HTTP status code of the response
+     * @param executionCount The number of times the request has been executed so far
+     * @return true if the request should be retried
+     */
+    public boolean retryRequest(int statusCode, int executionCount) {
+        return executionCount <= maxRetries && statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * Determine whether a request that failed with an I/O error should be retried, for transports that do not use
+     * HttpClient 4. The request is taken to have been sent, so only idempotent methods are retried.
+     *
+     * @param exception      The error the request failed with
+     * @param method         The HTTP method of the request
+     * @param executionCount The number of times the request has failed with an I/O error so far
+     * @return true if the request should be retried
+     */
+    public boolean retryRequest(IOException exception, String method, int executionCount) {
+        return retryRequest(exception, method, true, executionCount);
+    }
+
+    private boolean retryRequest(IOException exception, String method, boolean requestSent, int executionCount) {
+        return executionCount <= maxRetries && (!requestSent || isIdempotent(method))
+                && !(exception instanceof InterruptedIOException)
+                && !(exception instanceof UnknownHostException)
+                && !(exception instanceof ConnectException)
+                && !(exception instanceof SSLException);
+    }
+
+    /**
+     * @return true if sending a request with the method more than once has the same effect as sending it once
+     */
+    private static boolean isIdempotent(String method) {
+        return method != null && IDEMPOTENT_METHODS.contains(method.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Count the retry in the context, so that retries of server errors and of I/O errors are reported together
+     */
+    private static void countRetry(HttpContext context) {
+        if (context != null) {
+            Object retries = context.getAttribute(RETRY_COUNT_ATTRIBUTE);
+            context.setAttribute(RETRY_COUNT_ATTRIBUTE, retries instanceof Integer ? (Integer) retries + 1 : 1);
+        }
     }
 
     @Override
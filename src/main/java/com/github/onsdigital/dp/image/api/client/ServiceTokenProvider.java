@@ -0,0 +1,19 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import java.io.IOException;
+
+/**
+ * Supplies the service authentication token sent with each request to the image API
+ */
+@FunctionalInterface
+public interface ServiceTokenProvider {
+
+    /**
+     * Get the token to authenticate the next request with.
+     * Called once per request, possibly from several threads at once.
+     *
+     * @return A string containing the service authentication token
+     * @throws IOException if the token could not be obtained
+     */
+    String getServiceToken() throws IOException;
+}
@@ -0,0 +1,92 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import com.github.onsdigital.dp.image.api.client.model.Images;
+import com.github.onsdigital.dp.image.api.client.snapshot.Snapshot;
+import com.github.onsdigital.dp.image.api.client.snapshot.SnapshotStore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.github.onsdigital.logging.v2.event.SimpleEvent.info;
+import static com.github.onsdigital.logging.v2.event.SimpleEvent.warn;
+
+/**
+ * Serves collection listings from a {@link SnapshotStore}, fetching a listing only when there is no snapshot of it.
+ * Snapshots older than the store's revalidation age are still served, and are revalidated with the image API in
+ * the background using their ETag. Revalidations run one at a time on a thread shared by every client made from the
+ * same root client, so a restart with many snapshots does not send a burst of listing requests.
+ */
+class SnapshotListings {
+
+    private final ImageAPIClient client;
+    private final SnapshotStore store;
+    private final ClientExecutors executors;
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    SnapshotListings(ImageAPIClient client, SnapshotStore store, ClientExecutors executors) {
+        this.client = client;
+        this.store = store;
+        this.executors = executors;
+    }
+
+    Images getImages(String collectionID) throws IOException, ImageAPIException {
+        Snapshot snapshot = store.read(collectionID);
+        if (snapshot == null) {
+            return fetch(collectionID, null).getImages();
+        }
+
+        if (isDue(snapshot)) {
+            revalidate(collectionID);
+        }
+        return snapshot.getImages();
+    }
+
+    private boolean isDue(Snapshot snapshot) {
+        return Duration.between(snapshot.getFetchedAt(), Instant.now()).compareTo(store.getRevalidateAfter()) >= 0;
+    }
+
+    private Snapshot fetch(String collectionID, Snapshot previous) throws IOException, ImageAPIException {
+        Snapshot snapshot = client.fetchSnapshot(collectionID, previous);
+        try {
+            store.write(snapshot);
+        } catch (IOException e) {
+            warn().data("collection_id", collectionID).exception(e)
+                    .log("failed to write image-api listing snapshot");
+        }
+        return snapshot;
+    }
+
+    private void revalidate(String collectionID) {
+        if (!revalidating.add(collectionID)) {
+            return;
+        }
+
+        try {
+            executors.snapshotRevalidator().execute(() -> {
+                try {
+                    // Another client sharing the store may have revalidated it while this was queued.
+                    Snapshot current = store.read(collectionID);
+                    if (current == null || isDue(current)) {
+                        Snapshot updated = fetch(collectionID, current);
+                        info().data("collection_id", collectionID)
+                                .data("modified", current == null || updated.getImages() != current.getImages())
+                                .log("revalidated image-api listing snapshot");
+                    }
+                } catch (IOException | ImageAPIException | RuntimeException e) {
+                    warn().data("collection_id", collectionID).exception(e)
+                            .log("failed to revalidate image-api listing snapshot");
+                } finally {
+                    revalidating.remove(collectionID);
+                }
+            });
+        } catch (IllegalStateException | RejectedExecutionException e) {
+            // The client is closed, so the snapshot is served without being revalidated.
+            revalidating.remove(collectionID);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import org.apache.http.util.Args;
+
+/**
+ * Options controlling how image content is uploaded by {@link ImageClient#uploadImage} and
+ * {@link ImageClient#uploadImages(java.util.List, UploadOptions)}.
+ */
+public class UploadOptions {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final UploadProgressListener NO_PROGRESS = (imageId, bytesSent, totalBytes) -> {
+    };
+
+    private final int bufferSize;
+    private final int parallelism;
+    private final UploadProgressListener progressListener;
+
+    /**
+     * Create a new instance of UploadOptions
+     *
+     * @param bufferSize       The size of the fixed buffer each upload is sent through
+     * @param parallelism      The maximum number of files uploaded at once by
+     *                         {@link ImageClient#uploadImages(java.util.List, UploadOptions)}
+     * @param progressListener Notified as the content of each image is sent
+     */
+    public UploadOptions(int bufferSize, int parallelism, UploadProgressListener progressListener) {
+        Args.positive(bufferSize, "buffer size");
+        Args.positive(parallelism, "parallelism");
+        Args.notNull(progressListener, "progress listener");
+
+        this.bufferSize = bufferSize;
+        this.parallelism = parallelism;
+        this.progressListener = progressListener;
+    }
+
+    public UploadOptions(UploadProgressListener progressListener) {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_PARALLELISM, progressListener);
+    }
+
+    public UploadOptions() {
+        this(NO_PROGRESS);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public UploadProgressListener getProgressListener() {
+        return progressListener;
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.onsdigital.dp.image.api.client;
+
+/**
+ * Notified as the content of an image is uploaded. Uploads run in parallel may call the listener from several
+ * threads at once.
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+    /**
+     * @param imageId    The id of the image being uploaded
+     * @param bytesSent  The number of bytes of the content sent so far
+     * @param totalBytes The length of the content, or -1 if unknown
+     */
+    void progress(String imageId, long bytesSent, long totalBytes);
+}
@@ -0,0 +1,59 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.model.Image;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The outcome of uploading the content of several images
+ */
+public class UploadSummary {
+
+    private final Map<String, Image> uploaded;
+    private final Map<String, Exception> failures;
+    private final long bytesUploaded;
+    private final Duration totalDuration;
+
+    /**
+     * Create a new instance of UploadSummary
+     *
+     * @param uploaded      The ids of the images that were uploaded, mapped to the updated image
+     * @param failures      The ids of the images that failed to upload, mapped to the cause
+     * @param bytesUploaded The total size of the files that were uploaded
+     * @param totalDuration The time taken to upload every file
+     */
+    public UploadSummary(Map<String, Image> uploaded,
+                         Map<String, Exception> failures,
+                         long bytesUploaded,
+                         Duration totalDuration) {
+        this.uploaded = Collections.unmodifiableMap(uploaded);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.bytesUploaded = bytesUploaded;
+        this.totalDuration = totalDuration;
+    }
+
+    public Map<String, Image> getUploaded() {
+        return uploaded;
+    }
+
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public Duration getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return true if every file was uploaded successfully
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.onsdigital.dp.image.api.client.jfr;
+
+/**
+ * Entry point for the JDK Flight Recorder events emitted by the image API client.
+ * <p>
+ * The event classes extend {@code jdk.jfr.Event} and are only loaded when JFR is present on the runtime, so the
+ * client still runs on Java 8 runtimes without it. When JFR is absent, or an event type is not enabled in the
+ * current recording, the begin methods return a shared no-op scope.
+ */
+public final class ImageAPIEvents {
+
+    private static final String JFR_RECORDER_CLASS = "com.github.onsdigital.dp.image.api.client.jfr.JfrRecorder";
+
+    private ImageAPIEvents() {
+    }
+
+    /**
+     * Timing scope for a single request to the image API
+     */
+    public interface Request {
+
+        /**
+         * @param operation The client operation that made the request, e.g. getImages
+         * @param path      The path of the request URI
+         * @param status    The HTTP status code of the response, or 0 if no response was received
+         * @param retries   The number of times the request was retried
+         * @param bytes     The length of the response body, or -1 if unknown
+         */
+        void complete(String operation, String path, int status, int retries, long bytes);
+    }
+
+    /**
+     * Timing scope for parsing a response body
+     */
+    public interface Parse {
+
+        /**
+         * @param type  The simple name of the type the body was parsed into
+         * @param items The number of items parsed
+         * @param bytes The length of the parsed body
+         */
+        void complete(String type, int items, long bytes);
+    }
+
+    /**
+     * Timing scope for waiting on a connection from the pool
+     */
+    public interface Lease {
+
+        /**
+         * @param route  The target host the connection was leased for
+         * @param leased Whether a connection was leased before the wait ended
+         */
+        void complete(String route, boolean leased);
+    }
+
+    interface Recorder {
+        Request beginRequest();
+
+        Parse beginParse();
+
+        Lease beginLease();
+    }
+
+    private static final Request NOOP_REQUEST = (operation, path, status, retries, bytes) -> {
+    };
+    private static final Parse NOOP_PARSE = (type, items, bytes) -> {
+    };
+    private static final Lease NOOP_LEASE = (route, leased) -> {
+    };
+
+    private static final Recorder NOOP_RECORDER = new Recorder() {
+        @Override
+        public Request beginRequest() {
+            return NOOP_REQUEST;
+        }
+
+        @Override
+        public Parse beginParse() {
+            return NOOP_PARSE;
+        }
+
+        @Override
+        public Lease beginLease() {
+            return NOOP_LEASE;
+        }
+    };
+
+    private static final Recorder RECORDER = loadRecorder();
+
+    static Request noopRequest() {
+        return NOOP_REQUEST;
+    }
+
+    static Parse noopParse() {
+        return NOOP_PARSE;
+    }
+
+    static Lease noopLease() {
+        return NOOP_LEASE;
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ImageAPIEvents.class.getClassLoader());
+            return (Recorder) Class.forName(JFR_RECORDER_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return NOOP_RECORDER;
+        }
+    }
+
+    /**
+     * @return true if JFR is available on this runtime and the image API events can be recorded
+     */
+    public static boolean isAvailable() {
+        return RECORDER != NOOP_RECORDER;
+    }
+
+    public static Request beginRequest() {
+        return RECORDER.beginRequest();
+    }
+
+    public static Parse beginParse() {
+        return RECORDER.beginParse();
+    }
+
+    public static Lease beginLease() {
+        return RECORDER.beginLease();
+    }
+}
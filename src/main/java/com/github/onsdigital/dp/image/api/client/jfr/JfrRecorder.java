@@ -0,0 +1,47 @@
+package com.github.onsdigital.dp.image.api.client.jfr;
+
+import jdk.jfr.EventType;
+
+/**
+ * Recorder backed by JFR events. Only instantiated reflectively by {@link ImageAPIEvents} once JFR is known to be
+ * available, as loading it links against {@code jdk.jfr}.
+ * <p>
+ * Whether each event is enabled is checked on its {@link EventType} before an event is allocated, so a call made
+ * while no recording is capturing the event costs no more than the check.
+ */
+class JfrRecorder implements ImageAPIEvents.Recorder {
+
+    private final EventType requestType = EventType.getEventType(RequestEvent.class);
+    private final EventType parseType = EventType.getEventType(ParseEvent.class);
+    private final EventType leaseType = EventType.getEventType(PoolLeaseEvent.class);
+
+    @Override
+    public ImageAPIEvents.Request beginRequest() {
+        if (!requestType.isEnabled()) {
+            return ImageAPIEvents.noopRequest();
+        }
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public ImageAPIEvents.Parse beginParse() {
+        if (!parseType.isEnabled()) {
+            return ImageAPIEvents.noopParse();
+        }
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public ImageAPIEvents.Lease beginLease() {
+        if (!leaseType.isEnabled()) {
+            return ImageAPIEvents.noopLease();
+        }
+        PoolLeaseEvent event = new PoolLeaseEvent();
+        event.begin();
+        return event;
+    }
+}
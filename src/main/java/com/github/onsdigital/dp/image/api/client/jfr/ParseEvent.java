@@ -0,0 +1,41 @@
+package com.github.onsdigital.dp.image.api.client.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering reading and deserialising an image API response body
+ */
+@Name(ParseEvent.NAME)
+@Label("Image API Response Parse")
+@Category({"ONS", "Image API"})
+@Description("Reading and parsing an image API response body")
+class ParseEvent extends Event implements ImageAPIEvents.Parse {
+
+    static final String NAME = "com.github.onsdigital.dp.image.api.Parse";
+
+    @Label("Type")
+    String type;
+
+    @Label("Items")
+    int items;
+
+    @Label("Body Bytes")
+    @DataAmount
+    long bytes;
+
+    @Override
+    public void complete(String type, int items, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.type = type;
+            this.items = items;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.onsdigital.dp.image.api.client.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the wait for a connection to be leased from the client's connection pool
+ */
+@Name(PoolLeaseEvent.NAME)
+@Label("Image API Pool Lease")
+@Category({"ONS", "Image API"})
+@Description("Waiting to lease a connection from the image API client's connection pool")
+class PoolLeaseEvent extends Event implements ImageAPIEvents.Lease {
+
+    static final String NAME = "com.github.onsdigital.dp.image.api.PoolLease";
+
+    @Label("Route")
+    String route;
+
+    @Label("Leased")
+    boolean leased;
+
+    @Override
+    public void complete(String route, boolean leased) {
+        end();
+        if (shouldCommit()) {
+            this.route = route;
+            this.leased = leased;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.onsdigital.dp.image.api.client.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering a request to the image API, from sending it to receiving the response headers
+ */
+@Name(RequestEvent.NAME)
+@Label("Image API Request")
+@Category({"ONS", "Image API"})
+@Description("A request made to the image API")
+class RequestEvent extends Event implements ImageAPIEvents.Request {
+
+    static final String NAME = "com.github.onsdigital.dp.image.api.Request";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Retries")
+    int retries;
+
+    @Label("Response Bytes")
+    @DataAmount
+    long bytes;
+
+    @Override
+    public void complete(String operation, String path, int status, int retries, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.path = path;
+            this.status = status;
+            this.retries = retries;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -119,6 +119,22 @@ public class Image {
     public static class Licence {
         private String title;
         private String href;
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public String getHref() {
+            return href;
+        }
+
+        public void setHref(String href) {
+            this.href = href;
+        }
     }
 
     /**
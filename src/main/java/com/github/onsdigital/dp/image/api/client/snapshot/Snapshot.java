@@ -0,0 +1,52 @@
+package com.github.onsdigital.dp.image.api.client.snapshot;
+
+import com.github.onsdigital.dp.image.api.client.model.Images;
+import org.apache.http.util.Args;
+
+import java.time.Instant;
+
+/**
+ * A listing of the images in a collection as it was when fetched from the image API
+ */
+public class Snapshot {
+
+    private final String collectionId;
+    private final Images images;
+    private final String etag;
+    private final Instant fetchedAt;
+
+    /**
+     * Create a new instance of Snapshot
+     *
+     * @param collectionId The collection the listing is of
+     * @param images       The listing
+     * @param etag         The ETag the image API returned with the listing, or null if it returned none
+     * @param fetchedAt    When the listing was fetched, or last confirmed to be unchanged
+     */
+    public Snapshot(String collectionId, Images images, String etag, Instant fetchedAt) {
+        Args.notBlank(collectionId, "collection id");
+        Args.notNull(images, "images");
+        Args.notNull(fetchedAt, "fetched at");
+
+        this.collectionId = collectionId;
+        this.images = images;
+        this.etag = etag;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public String getCollectionId() {
+        return collectionId;
+    }
+
+    public Images getImages() {
+        return images;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+}
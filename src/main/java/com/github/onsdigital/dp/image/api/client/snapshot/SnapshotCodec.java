@@ -0,0 +1,261 @@
+package com.github.onsdigital.dp.image.api.client.snapshot;
+
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import com.github.onsdigital.dp.image.api.client.model.Images;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding of a {@link Snapshot}.
+ * <p>
+ * A snapshot is a header (magic, version, fetch time), the collection id and ETag, the listing's counts and then
+ * each image, followed by a CRC32 of everything before it. Lengths and counts are unsigned varints offset by one so
+ * that zero marks a null value, which keeps a typical listing to little more than the length of its strings.
+ */
+final class SnapshotCodec {
+
+    private static final int MAGIC = 0x494D4753;
+    private static final byte VERSION = 1;
+
+    private static final int HAS_LICENSE = 1;
+    private static final int HAS_LINKS = 1 << 1;
+    private static final int HAS_UPLOAD = 1 << 2;
+
+    private SnapshotCodec() {
+    }
+
+    static byte[] encode(Snapshot snapshot) {
+        Output out = new Output();
+        out.writeInt(MAGIC);
+        out.write(VERSION);
+        out.writeLong(snapshot.getFetchedAt().toEpochMilli());
+        out.writeString(snapshot.getCollectionId());
+        out.writeString(snapshot.getEtag());
+
+        Images images = snapshot.getImages();
+        out.writeInteger(images.getCount());
+        out.writeInteger(images.getLimit());
+        out.writeInteger(images.getOffset());
+        out.writeInteger(images.getTotalCount());
+
+        List<Image> items = images.getItems();
+        out.writeLength(items == null ? null : items.size());
+        if (items != null) {
+            for (Image image : items) {
+                writeImage(out, image);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(out.buffer(), 0, out.size());
+        out.writeInt((int) crc.getValue());
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the buffer does not hold a complete snapshot of a version this codec can read
+     */
+    static Snapshot decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.remaining() < 4 + 1 + 8 + 4) {
+                throw new IOException("snapshot is truncated");
+            }
+
+            ByteBuffer content = buffer.duplicate();
+            content.limit(buffer.limit() - 4);
+            CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+                throw new IOException("snapshot checksum does not match");
+            }
+
+            if (content.getInt() != MAGIC) {
+                throw new IOException("not an image listing snapshot");
+            }
+            byte version = content.get();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version);
+            }
+
+            Instant fetchedAt = Instant.ofEpochMilli(content.getLong());
+            String collectionId = readString(content);
+            String etag = readString(content);
+
+            Images images = new Images();
+            images.setCount(readInteger(content));
+            images.setLimit(readInteger(content));
+            images.setOffset(readInteger(content));
+            images.setTotalCount(readInteger(content));
+
+            Integer itemCount = readLength(content);
+            if (itemCount != null) {
+                List<Image> items = new ArrayList<>(itemCount);
+                for (int i = 0; i < itemCount; i++) {
+                    items.add(readImage(content));
+                }
+                images.setItems(items);
+            }
+
+            if (content.hasRemaining()) {
+                throw new IOException("unexpected data at the end of the snapshot");
+            }
+            return new Snapshot(collectionId, images, etag, fetchedAt);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("snapshot is malformed", e);
+        }
+    }
+
+    private static void writeImage(Output out, Image image) {
+        out.writeString(image.getId());
+        out.writeString(image.getCollectionId());
+        out.writeString(image.getState());
+        out.writeString(image.getError());
+        out.writeString(image.getFilename());
+        out.writeString(image.getType());
+
+        int flags = (image.getLicense() != null ? HAS_LICENSE : 0)
+                | (image.getLinks() != null ? HAS_LINKS : 0)
+                | (image.getUpload() != null ? HAS_UPLOAD : 0);
+        out.write(flags);
+
+        if (image.getLicense() != null) {
+            out.writeString(image.getLicense().getTitle());
+            out.writeString(image.getLicense().getHref());
+        }
+        if (image.getLinks() != null) {
+            out.writeString(image.getLinks().self);
+            out.writeString(image.getLinks().downloads);
+        }
+        if (image.getUpload() != null) {
+            out.writeString(image.getUpload().path);
+        }
+    }
+
+    private static Image readImage(ByteBuffer in) {
+        Image image = new Image();
+        image.setId(readString(in));
+        image.setCollectionId(readString(in));
+        image.setState(readString(in));
+        image.setError(readString(in));
+        image.setFilename(readString(in));
+        image.setType(readString(in));
+
+        int flags = in.get();
+        if ((flags & HAS_LICENSE) != 0) {
+            Image.Licence license = new Image.Licence();
+            license.setTitle(readString(in));
+            license.setHref(readString(in));
+            image.setLicense(license);
+        }
+        if ((flags & HAS_LINKS) != 0) {
+            Image.Links links = new Image.Links();
+            links.self = readString(in);
+            links.downloads = readString(in);
+            image.setLinks(links);
+        }
+        if ((flags & HAS_UPLOAD) != 0) {
+            Image.Upload upload = new Image.Upload();
+            upload.path = readString(in);
+            image.setUpload(upload);
+        }
+        return image;
+    }
+
+    private static String readString(ByteBuffer in) {
+        Integer length = readLength(in);
+        if (length == null) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Integer readInteger(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return in.getInt();
+    }
+
+    /**
+     * Read an unsigned varint offset by one, where zero is null
+     */
+    private static Integer readLength(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new IllegalArgumentException("varint is too long");
+            }
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("length is too large");
+        }
+        return value == 0 ? null : (int) value - 1;
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+
+        private Output() {
+            super(4096);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeInteger(Integer value) {
+            write(value == null ? 0 : 1);
+            if (value != null) {
+                writeInt(value);
+            }
+        }
+
+        void writeLength(Integer length) {
+            long value = length == null ? 0 : length + 1L;
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeLength(null);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeLength(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.github.onsdigital.dp.image.api.client.snapshot;
+
+import org.apache.http.util.Args;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static com.github.onsdigital.logging.v2.event.SimpleEvent.info;
+import static com.github.onsdigital.logging.v2.event.SimpleEvent.warn;
+
+/**
+ * Stores snapshots of collection listings on disk, one file per collection, so that a restarted client can serve
+ * listings straight away rather than fetch every collection from the image API at once.
+ * <p>
+ * Snapshots are written to a temporary file and moved into place, so a reader sees either the previous snapshot or
+ * the new one, never a partial write. Files are read through a memory mapping. A file that cannot be read, e.g.
+ * one written by an incompatible version, is treated as missing and removed. Once the snapshots take up more than
+ * the size limit, the least recently written are deleted first.
+ */
+public class SnapshotStore {
+
+    public static final long DEFAULT_MAX_TOTAL_BYTES = 64L * 1024 * 1024;
+    public static final Duration DEFAULT_REVALIDATE_AFTER = Duration.ofSeconds(30);
+
+    static final String SUFFIX = ".snapshot";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxTotalBytes;
+    private final Duration revalidateAfter;
+
+    /**
+     * Create a new instance of SnapshotStore
+     *
+     * @param directory       The directory to keep snapshots in, created if it does not exist
+     * @param maxTotalBytes   The most disk space the snapshots may take up
+     * @param revalidateAfter How old a snapshot must be before it is revalidated with the image API when served
+     * @throws IOException if the directory cannot be created
+     */
+    public SnapshotStore(Path directory, long maxTotalBytes, Duration revalidateAfter) throws IOException {
+        Args.notNull(directory, "directory");
+        Args.positive(maxTotalBytes, "max total bytes");
+        Args.notNull(revalidateAfter, "revalidate after");
+        Args.check(!revalidateAfter.isNegative(), "revalidate after must not be negative");
+
+        this.directory = Files.createDirectories(directory);
+        this.maxTotalBytes = maxTotalBytes;
+        this.revalidateAfter = revalidateAfter;
+    }
+
+    public SnapshotStore(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_TOTAL_BYTES, DEFAULT_REVALIDATE_AFTER);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    public Duration getRevalidateAfter() {
+        return revalidateAfter;
+    }
+
+    /**
+     * Read the snapshot of a collection's listing
+     *
+     * @param collectionId The collection to read
+     * @return The {@link Snapshot}, or null if there is no readable snapshot of the collection
+     */
+    public Snapshot read(String collectionId) {
+        Args.notBlank(collectionId, "collection id");
+
+        Path file = fileFor(collectionId);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Snapshot snapshot = SnapshotCodec.decode(mapped);
+            if (!collectionId.equals(snapshot.getCollectionId())) {
+                throw new IOException("snapshot is of collection " + snapshot.getCollectionId());
+            }
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            warn().data("collection_id", collectionId).data("file", file.toString()).exception(e)
+                    .log("discarding unreadable image-api listing snapshot");
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /**
+     * Write the snapshot of a collection's listing, replacing any previous snapshot of the collection, then delete
+     * the least recently written snapshots until the store is back within its size limit. A snapshot larger than
+     * the whole limit is not stored.
+     *
+     * @param snapshot The {@link Snapshot} to write
+     * @throws IOException
+     */
+    public void write(Snapshot snapshot) throws IOException {
+        Args.notNull(snapshot, "snapshot");
+
+        byte[] encoded = SnapshotCodec.encode(snapshot);
+        Path file = fileFor(snapshot.getCollectionId());
+        if (encoded.length > maxTotalBytes) {
+            info().data("collection_id", snapshot.getCollectionId()).data("bytes", encoded.length)
+                    .log("image-api listing snapshot exceeds the store size limit, not storing it");
+            deleteQuietly(file);
+            return;
+        }
+
+        Path temp = directory.resolve(file.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(encoded);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            move(temp, file);
+        } finally {
+            deleteQuietly(temp);
+        }
+
+        evict(file);
+    }
+
+    /**
+     * Remove the snapshot of a collection's listing, if there is one
+     *
+     * @param collectionId The collection to remove
+     * @throws IOException
+     */
+    public void delete(String collectionId) throws IOException {
+        Args.notBlank(collectionId, "collection id");
+        Files.deleteIfExists(fileFor(collectionId));
+    }
+
+    /**
+     * @return The disk space currently taken up by snapshots
+     * @throws IOException
+     */
+    public long totalBytes() throws IOException {
+        long total = 0;
+        for (Entry entry : entries()) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Delete the least recently written snapshots, other than the one just written, until the store is within its
+     * size limit. Synchronized so that concurrent writers do not both delete to make the same space.
+     */
+    private synchronized void evict(Path written) throws IOException {
+        List<Entry> entries = entries();
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        if (total <= maxTotalBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(entry -> entry.lastModified));
+        for (Entry entry : entries) {
+            if (total <= maxTotalBytes) {
+                break;
+            }
+            if (entry.file.equals(written)) {
+                continue;
+            }
+            if (Files.deleteIfExists(entry.file)) {
+                info().data("file", entry.file.toString()).data("bytes", entry.size)
+                        .log("evicted image-api listing snapshot");
+            }
+            total -= entry.size;
+        }
+    }
+
+    private List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } catch (NoSuchFileException e) {
+                    // replaced or evicted by another writer
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Snapshot files are named by a hash of the collection id, so any id maps to a safe file name of fixed length
+     */
+    Path fileFor(String collectionId) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(collectionId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + SUFFIX.length());
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return directory.resolve(name.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // left for a later write or eviction to replace
+        }
+    }
+
+    private static class Entry {
+        private final Path file;
+        private final long size;
+        private final long lastModified;
+
+        private Entry(Path file, long size, long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
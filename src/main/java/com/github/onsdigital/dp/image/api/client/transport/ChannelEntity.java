@@ -0,0 +1,56 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * HttpClient 4 entity that copies a {@link RequestBody} to the connection through a buffer of the body's buffer
+ * size, chunked when its length is unknown
+ */
+class ChannelEntity extends AbstractHttpEntity {
+
+    private final RequestBody body;
+
+    ChannelEntity(RequestBody body) {
+        this.body = body;
+        setContentType(body.getContentType());
+        setChunked(body.getContentLength() < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return body.isRepeatable();
+    }
+
+    @Override
+    public long getContentLength() {
+        return body.getContentLength();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return Channels.newInputStream(body.open());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(body.getBufferSize());
+        try (ReadableByteChannel source = body.open()) {
+            while (source.read(buffer) != -1) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * HttpClient 5 entity producer that sends a {@link RequestBody} as HTTP/2 data frames through a buffer of the
+ * body's buffer size. Reading stops whenever the stream's flow-control window is full and continues when the
+ * reactor asks for more output.
+ */
+class ChannelEntityProducer implements AsyncEntityProducer {
+
+    private final RequestBody body;
+    private ByteBuffer buffer;
+    private ReadableByteChannel source;
+    private boolean endOfSource;
+
+    ChannelEntityProducer(RequestBody body) {
+        this.body = body;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return body.isRepeatable();
+    }
+
+    @Override
+    public long getContentLength() {
+        return body.getContentLength();
+    }
+
+    @Override
+    public String getContentType() {
+        return body.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return body.getContentLength() < 0;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public int available() {
+        return body.getBufferSize();
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+        if (source == null) {
+            source = body.open();
+            buffer = ByteBuffer.allocate(body.getBufferSize());
+            buffer.flip();
+        }
+
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (endOfSource) {
+                    channel.endStream();
+                    releaseResources();
+                    return;
+                }
+                buffer.clear();
+                endOfSource = source.read(buffer) == -1;
+                buffer.flip();
+            }
+
+            if (buffer.hasRemaining() && channel.write(buffer) == 0) {
+                // The flow-control window is full, produce is called again when there is capacity.
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        releaseResources();
+    }
+
+    @Override
+    public void releaseResources() {
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                // nothing more can be done with the source
+            }
+        }
+    }
+}
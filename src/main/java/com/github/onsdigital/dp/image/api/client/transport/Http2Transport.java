@@ -0,0 +1,138 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import com.github.onsdigital.dp.image.api.client.RetryStrategy;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.http.util.Args;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import static com.github.onsdigital.logging.v2.event.SimpleEvent.info;
+
+/**
+ * {@link Transport} backed by an Apache HttpClient 5 async client speaking HTTP/2, so that concurrent requests
+ * to the same host are multiplexed as streams over a single connection rather than each needing their own.
+ * Plain http URLs use HTTP/2 with prior knowledge, https URLs negotiate HTTP/2 with ALPN.
+ * Server errors and I/O errors are retried as the {@link RetryStrategy} decides, the same as the default
+ * {@link HttpClient4Transport} client, unless the request body cannot be repeated.
+ */
+public class Http2Transport implements Transport {
+
+    private final CloseableHttpAsyncClient client;
+    private final RetryStrategy retryStrategy;
+
+    /**
+     * Create a new instance of Http2Transport. The client is started if it is not already running.
+     *
+     * @param client        An HTTP/2 async client, e.g. built by {@link H2AsyncClientBuilder}, with its own
+     *                      automatic retries disabled
+     * @param retryStrategy The strategy used to retry server errors and I/O errors
+     */
+    public Http2Transport(CloseableHttpAsyncClient client, RetryStrategy retryStrategy) {
+        Args.notNull(client, "http client");
+        Args.notNull(retryStrategy, "retry strategy");
+
+        this.client = client;
+        this.retryStrategy = retryStrategy;
+        client.start();
+    }
+
+    /**
+     * Create a new instance of Http2Transport with a default HTTP/2 client and retry strategy
+     */
+    public Http2Transport() {
+        this(H2AsyncClientBuilder.create().disableAutomaticRetries().build(), new RetryStrategy());
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        info().data("method", request.getMethod()).data("uri", request.getURI())
+                .log("executing image-api request");
+
+        // Retries of server errors and of I/O errors are limited separately, as HttpClient 4 does.
+        int responses = 0;
+        int ioErrors = 0;
+        while (true) {
+            TransportResponse response;
+            try {
+                response = send(request, responses + ioErrors);
+            } catch (IOException e) {
+                ioErrors++;
+                if (!isRepeatable(request) || !retryStrategy.retryRequest(e, request.getMethod(), ioErrors)) {
+                    throw e;
+                }
+                info().data("method", request.getMethod()).data("uri", request.getURI())
+                        .data("error", e.toString())
+                        .log("retrying image-api request after an I/O error");
+                continue;
+            }
+
+            responses++;
+            if (!isRepeatable(request) || !retryStrategy.retryRequest(response.getStatusCode(), responses)) {
+                info().data("method", request.getMethod()).data("uri", request.getURI())
+                        .data("status", response.getStatusCode())
+                        .log("execute image-api request compeleted");
+                return response;
+            }
+
+            response.close();
+            try {
+                Thread.sleep(retryStrategy.getRetryInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while retrying " + request);
+            }
+        }
+    }
+
+    private static boolean isRepeatable(TransportRequest request) {
+        return request.getBody() == null || request.getBody().isRepeatable();
+    }
+
+    private TransportResponse send(TransportRequest request, int retries) throws IOException {
+        BasicHttpRequest req = new BasicHttpRequest(request.getMethod(), request.getURI());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            req.addHeader(header.getKey(), header.getValue());
+        }
+
+        HttpClientContext context = HttpClientContext.create();
+        if (!request.isRedirectsEnabled()) {
+            context.setRequestConfig(RequestConfig.custom().setRedirectsEnabled(false).build());
+        }
+
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(retries);
+        Future<TransportResponse> exchange = client.execute(new BasicRequestProducer(req,
+                        request.getBody() == null ? null : new ChannelEntityProducer(request.getBody())), consumer,
+                null, context, new FutureCallback<TransportResponse>() {
+                    @Override
+                    public void completed(TransportResponse result) {
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        consumer.failed(ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        consumer.failed(new InterruptedIOException("request cancelled: " + request));
+                    }
+                });
+        consumer.setExchange(exchange);
+        return consumer.awaitResponse();
+    }
+
+    @Override
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+}
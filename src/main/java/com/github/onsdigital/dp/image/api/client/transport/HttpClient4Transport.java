@@ -0,0 +1,119 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import com.github.onsdigital.dp.image.api.client.RetryStrategy;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.Args;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import static com.github.onsdigital.logging.v2.event.SimpleEvent.info;
+
+/**
+ * {@link Transport} backed by an Apache HttpClient 4 {@link CloseableHttpClient}, sending requests over HTTP/1.1
+ * with one pooled connection per concurrent request. Server errors and I/O errors are retried by the client's
+ * own retry strategy and retry handler, unless the request body cannot be repeated. Build the client with a
+ * {@link RetryStrategy} as both to retry the same failures as {@link Http2Transport}.
+ */
+public class HttpClient4Transport implements Transport {
+
+    private final CloseableHttpClient client;
+
+    /**
+     * Create a new instance of HttpClient4Transport
+     *
+     * @param client The HTTP client to send requests with
+     */
+    public HttpClient4Transport(CloseableHttpClient client) {
+        Args.notNull(client, "http client");
+        this.client = client;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        RequestBuilder builder = RequestBuilder.create(request.getMethod()).setUri(request.getURI());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.addHeader(header.getKey(), header.getValue());
+        }
+        if (request.getBody() != null) {
+            builder.setEntity(new ChannelEntity(request.getBody()));
+        }
+        if (!request.isRedirectsEnabled()) {
+            RequestConfig config = client instanceof Configurable ? ((Configurable) client).getConfig() : null;
+            builder.setConfig(RequestConfig.copy(config == null ? RequestConfig.DEFAULT : config)
+                    .setRedirectsEnabled(false)
+                    .build());
+        }
+        HttpUriRequest req = builder.build();
+
+        HttpClientContext context = HttpClientContext.create();
+
+        info().beginHTTP(req).log("executing image-api request");
+        CloseableHttpResponse resp = client.execute(req, context);
+        info().endHTTP(req, resp).log("execute image-api request compeleted");
+
+        // The retry strategy counts a retry before the client checks whether the body can be sent again.
+        Integer retries = context.getAttribute(RetryStrategy.RETRY_COUNT_ATTRIBUTE, Integer.class);
+        boolean repeatable = request.getBody() == null || request.getBody().isRepeatable();
+        return new Response(resp, retries == null || !repeatable ? 0 : retries);
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    private static class Response implements TransportResponse {
+
+        private final CloseableHttpResponse response;
+        private final int retries;
+
+        private Response(CloseableHttpResponse response, int retries) {
+            this.response = response;
+            this.retries = retries;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public String getFirstHeader(String name) {
+            Header header = response.getFirstHeader(name);
+            return header == null ? null : header.getValue();
+        }
+
+        @Override
+        public long getContentLength() {
+            HttpEntity entity = response.getEntity();
+            return entity == null ? -1 : entity.getContentLength();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            HttpEntity entity = response.getEntity();
+            return entity == null ? new ByteArrayInputStream(new byte[0]) : entity.getContent();
+        }
+
+        @Override
+        public int getRetries() {
+            return retries;
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.close();
+        }
+    }
+}
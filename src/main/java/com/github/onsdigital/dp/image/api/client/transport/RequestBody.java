@@ -0,0 +1,100 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import org.apache.http.util.Args;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The body of a {@link TransportRequest}, read from a channel by the transport as the request is sent.
+ * Bodies of unknown length are streamed, with chunked transfer encoding over HTTP/1.1, through a buffer of a fixed
+ * size, so sending them does not need memory proportional to their length.
+ */
+public class RequestBody {
+
+    /**
+     * Opens the channel the body is read from
+     */
+    @FunctionalInterface
+    public interface Source {
+        ReadableByteChannel open() throws IOException;
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private final String contentType;
+    private final long contentLength;
+    private final Source source;
+    private final boolean repeatable;
+    private final int bufferSize;
+    private final AtomicBoolean opened = new AtomicBoolean();
+
+    /**
+     * Create a body of known length held in memory
+     *
+     * @param contentType The media type of the body, e.g. application/json
+     * @param content     The body
+     */
+    public RequestBody(String contentType, byte[] content) {
+        this(contentType, content.length, () -> Channels.newChannel(new ByteArrayInputStream(content)), true,
+                DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a body of unknown length that is streamed from the source
+     *
+     * @param contentType The media type of the body, e.g. application/octet-stream
+     * @param source      Opens the channel to read the body from. The transport closes the channel once sent.
+     * @param repeatable  Whether the source can be opened again, so a failed request can be retried
+     * @param bufferSize  The size of the buffer the body is copied through
+     */
+    public RequestBody(String contentType, Source source, boolean repeatable, int bufferSize) {
+        this(contentType, -1, source, repeatable, bufferSize);
+    }
+
+    private RequestBody(String contentType, long contentLength, Source source, boolean repeatable, int bufferSize) {
+        Args.notBlank(contentType, "content type");
+        Args.notNull(source, "source");
+        Args.positive(bufferSize, "buffer size");
+
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.source = source;
+        this.repeatable = repeatable;
+        this.bufferSize = bufferSize;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The length of the body, or -1 if it is streamed
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public boolean isRepeatable() {
+        return repeatable;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Open the channel to read the body from
+     *
+     * @throws IOException if the body is not repeatable and has already been opened
+     */
+    public ReadableByteChannel open() throws IOException {
+        if (!opened.compareAndSet(false, true) && !repeatable) {
+            throw new IOException("the request body has already been sent and cannot be repeated");
+        }
+        return source.open();
+    }
+}
@@ -0,0 +1,343 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Async response consumer that hands the response over as soon as its headers arrive and exposes the body as a
+ * blocking {@link InputStream}. Flow-control capacity is only returned to the connection as the caller reads, so
+ * at most one stream window of body data is held in memory whatever the size of the response.
+ * <p>
+ * The exchange itself only completes once the body has been fully received. Closing the response or its body before
+ * then, whichever happens first, cancels the exchange and returns the capacity of anything unread, so an abandoned
+ * stream never stays open against the server's concurrent stream limit. HttpClient 5 discards the connection of a
+ * cancelled exchange, as HttpClient 4 does for a response closed early, so read the body to its end where the
+ * connection is busy with other requests.
+ */
+class StreamingResponseConsumer implements AsyncResponseConsumer<TransportResponse> {
+
+    private final int retries;
+    private final Body body = new Body(this::cancelExchange);
+    private final CompletableFuture<TransportResponse> response = new CompletableFuture<>();
+
+    private volatile Future<?> exchange;
+    private volatile FutureCallback<TransportResponse> resultCallback;
+    private volatile TransportResponse result;
+
+    StreamingResponseConsumer(int retries) {
+        this.retries = retries;
+    }
+
+    /**
+     * @param exchange The future of the exchange this consumer is receiving, cancelled if the body is abandoned
+     */
+    void setExchange(Future<?> exchange) {
+        this.exchange = exchange;
+    }
+
+    /**
+     * Wait for the response headers to arrive
+     *
+     * @return The response, with its body still streaming
+     * @throws IOException if the exchange failed before the headers arrived
+     */
+    TransportResponse awaitResponse() throws IOException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            cancelExchange();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response,
+                                EntityDetails entityDetails,
+                                HttpContext context,
+                                FutureCallback<TransportResponse> resultCallback) {
+
+        this.result = new Response(response, entityDetails, body, retries);
+        this.resultCallback = resultCallback;
+        if (entityDetails == null) {
+            streamEnd(null);
+        }
+        this.response.complete(result);
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) {
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        body.setCapacityChannel(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        body.append(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) {
+        body.end();
+        FutureCallback<TransportResponse> callback = resultCallback;
+        if (callback != null) {
+            callback.completed(result);
+        }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        response.completeExceptionally(cause);
+        body.fail(cause);
+    }
+
+    private void cancelExchange() {
+        Future<?> current = exchange;
+        if (current != null) {
+            current.cancel(true);
+        }
+    }
+
+    @Override
+    public void releaseResources() {
+    }
+
+    private static class Response implements TransportResponse {
+
+        private final HttpResponse response;
+        private final EntityDetails entityDetails;
+        private final Body body;
+        private final int retries;
+
+        private Response(HttpResponse response, EntityDetails entityDetails, Body body, int retries) {
+            this.response = response;
+            this.entityDetails = entityDetails;
+            this.body = body;
+            this.retries = retries;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getCode();
+        }
+
+        @Override
+        public String getFirstHeader(String name) {
+            Header header = response.getFirstHeader(name);
+            return header == null ? null : header.getValue();
+        }
+
+        @Override
+        public long getContentLength() {
+            if (entityDetails == null) {
+                return -1;
+            }
+            if (entityDetails.getContentLength() >= 0) {
+                return entityDetails.getContentLength();
+            }
+            // HTTP/2 entity details do not carry the declared length, so fall back to the header.
+            String contentLength = getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            try {
+                return contentLength == null ? -1 : Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public int getRetries() {
+            return retries;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    /**
+     * Body chunks handed over from the I/O reactor thread to the reading thread. Capacity is returned to the
+     * channel outside the lock so the reading thread never holds it while calling into the reactor.
+     */
+    private static class Body extends InputStream {
+
+        private final Deque<ByteBuffer> chunks = new ArrayDeque<>();
+        private final Runnable cancelExchange;
+        private CapacityChannel capacityChannel;
+        private int unreleasedCapacity;
+        private boolean ended;
+        private boolean closed;
+        private Exception failure;
+
+        Body(Runnable cancelExchange) {
+            this.cancelExchange = cancelExchange;
+        }
+
+        void setCapacityChannel(CapacityChannel capacityChannel) throws IOException {
+            synchronized (this) {
+                this.capacityChannel = capacityChannel;
+            }
+            releaseCapacity(0);
+        }
+
+        void append(ByteBuffer src) throws IOException {
+            int discarded;
+            synchronized (this) {
+                if (!closed) {
+                    ByteBuffer chunk = ByteBuffer.allocate(src.remaining());
+                    chunk.put(src).flip();
+                    chunks.addLast(chunk);
+                    notifyAll();
+                    return;
+                }
+                discarded = src.remaining();
+                src.position(src.limit());
+            }
+            // Data still in flight when the body was closed is thrown away, but its capacity is not.
+            releaseCapacity(discarded);
+        }
+
+        synchronized void end() {
+            ended = true;
+            notifyAll();
+        }
+
+        synchronized void fail(Exception cause) {
+            if (!closed) {
+                failure = cause;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            int n;
+            synchronized (this) {
+                ByteBuffer chunk = awaitChunk();
+                if (chunk == null) {
+                    return -1;
+                }
+
+                n = Math.min(len, chunk.remaining());
+                chunk.get(b, off, n);
+                if (!chunk.hasRemaining()) {
+                    chunks.removeFirst();
+                }
+            }
+
+            releaseCapacity(n);
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            int available = 0;
+            for (ByteBuffer chunk : chunks) {
+                available += chunk.remaining();
+            }
+            return available;
+        }
+
+        /**
+         * Close the body, discarding anything unread, whether this is called directly or by closing the response.
+         * If the body has not been fully received the exchange is cancelled.
+         */
+        @Override
+        public void close() throws IOException {
+            int discarded = 0;
+            boolean unreceived;
+            synchronized (this) {
+                unreceived = !closed && !ended;
+                closed = true;
+                for (ByteBuffer chunk : chunks) {
+                    discarded += chunk.remaining();
+                }
+                chunks.clear();
+                notifyAll();
+            }
+            releaseCapacity(discarded);
+            if (unreceived) {
+                cancelExchange.run();
+            }
+        }
+
+        private ByteBuffer awaitChunk() throws IOException {
+            while (true) {
+                if (closed) {
+                    throw new IOException("response body closed");
+                }
+                if (failure != null) {
+                    throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+                }
+                if (!chunks.isEmpty()) {
+                    return chunks.peekFirst();
+                }
+                if (ended) {
+                    return null;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while reading response body");
+                }
+            }
+        }
+
+        private void releaseCapacity(int consumed) throws IOException {
+            CapacityChannel channel;
+            int increment;
+            synchronized (this) {
+                unreleasedCapacity += consumed;
+                if (capacityChannel == null || unreleasedCapacity == 0) {
+                    return;
+                }
+                channel = capacityChannel;
+                increment = unreleasedCapacity;
+                unreleasedCapacity = 0;
+            }
+            channel.update(increment);
+        }
+    }
+}
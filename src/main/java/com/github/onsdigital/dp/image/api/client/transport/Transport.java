@@ -0,0 +1,22 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The HTTP transport used by the image API client to send requests.
+ * Implementations must be safe to use from several threads at once.
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Send a request and wait for the response headers. The response body is streamed, so the caller must close
+     * the returned response once finished with it.
+     * Implementations retry server errors according to their configured retry strategy.
+     *
+     * @param request The request to send
+     * @return The {@link TransportResponse} received
+     * @throws IOException if the request could not be sent or no response was received
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+}
@@ -0,0 +1,97 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import org.apache.http.util.Args;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A request to be sent by a {@link Transport}
+ */
+public class TransportRequest {
+
+    private final String method;
+    private final URI uri;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private RequestBody body;
+    private boolean redirectsEnabled = true;
+
+    /**
+     * Create a new instance of TransportRequest
+     *
+     * @param method The HTTP method of the request, e.g. GET
+     * @param uri    The absolute URI to send the request to
+     */
+    public TransportRequest(String method, URI uri) {
+        Args.notBlank(method, "method");
+        Args.notNull(uri, "uri");
+
+        this.method = method;
+        this.uri = uri;
+    }
+
+    /**
+     * Add a header to the request, replacing any existing value with the same name
+     *
+     * @param name  The header name
+     * @param value The header value
+     * @return This request
+     */
+    public TransportRequest addHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Set the body to send with the request
+     *
+     * @param body The request body
+     * @return This request
+     */
+    public TransportRequest setBody(RequestBody body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * Set whether the transport follows redirects itself. Disable this when the request carries credentials meant
+     * only for its original host, and follow redirects in the caller instead.
+     *
+     * @param redirectsEnabled Whether the transport follows redirects, true by default
+     * @return This request
+     */
+    public TransportRequest setRedirectsEnabled(boolean redirectsEnabled) {
+        this.redirectsEnabled = redirectsEnabled;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URI getURI() {
+        return uri;
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * @return The request body, or null if the request has none
+     */
+    public RequestBody getBody() {
+        return body;
+    }
+
+    public boolean isRedirectsEnabled() {
+        return redirectsEnabled;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri;
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A response received by a {@link Transport}. Closing the response releases the underlying connection or stream.
+ */
+public interface TransportResponse extends Closeable {
+
+    /**
+     * @return The HTTP status code of the response
+     */
+    int getStatusCode();
+
+    /**
+     * @param name The header name
+     * @return The value of the first header with the given name, or null if there is none
+     */
+    String getFirstHeader(String name);
+
+    /**
+     * @return The length of the response body, or -1 if unknown
+     */
+    long getContentLength();
+
+    /**
+     * @return A stream of the response body, empty if the response has no body
+     * @throws IOException
+     */
+    InputStream getBody() throws IOException;
+
+    /**
+     * @return The number of times the request was retried before this response was received
+     */
+    int getRetries();
+}
@@ -0,0 +1,95 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingServiceTokenProviderTest {
+
+    @Test
+    public void testCachingServiceTokenProvider_reusesToken() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachingServiceTokenProvider provider = new CachingServiceTokenProvider(
+                () -> "token-" + calls.incrementAndGet(), Duration.ofMinutes(5));
+
+        assertEquals("token-1", provider.getServiceToken());
+        assertEquals("token-1", provider.getServiceToken());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testCachingServiceTokenProvider_refreshesExpiredToken() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachingServiceTokenProvider provider = new CachingServiceTokenProvider(
+                () -> "token-" + calls.incrementAndGet(), Duration.ofNanos(1));
+
+        assertEquals("token-1", provider.getServiceToken());
+        Thread.sleep(1);
+        assertEquals("token-2", provider.getServiceToken());
+    }
+
+    @Test
+    public void testCachingServiceTokenProvider_invalidate() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachingServiceTokenProvider provider = new CachingServiceTokenProvider(
+                () -> "token-" + calls.incrementAndGet(), Duration.ofMinutes(5));
+
+        assertEquals("token-1", provider.getServiceToken());
+        provider.invalidate();
+        assertEquals("token-2", provider.getServiceToken());
+    }
+
+    @Test
+    public void testCachingServiceTokenProvider_singleRefreshUnderConcurrency() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachingServiceTokenProvider provider = new CachingServiceTokenProvider(() -> {
+            int call = calls.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return "token-" + call;
+        }, Duration.ofMillis(500));
+
+        // Given a token that has expired
+        assertEquals("token-1", provider.getServiceToken());
+        Thread.sleep(600);
+
+        // When many threads ask for the token at once
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> tokens = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                tokens.add(executor.submit(() -> {
+                    start.await();
+                    return provider.getServiceToken();
+                }));
+            }
+            start.countDown();
+
+            // Then they all get the same refreshed token
+            for (Future<String> token : tokens) {
+                assertEquals("token-2", token.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then the token is refreshed exactly once
+        assertEquals(2, calls.get());
+    }
+}
@@ -2,25 +2,42 @@ package com.github.onsdigital.dp.image.api.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.onsdigital.dp.image.api.client.exception.*;
+import com.github.onsdigital.dp.image.api.client.model.Image;
 import com.github.onsdigital.dp.image.api.client.model.Images;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.onsdigital.dp.image.api.client.TestImages.image;
+import static com.github.onsdigital.dp.image.api.client.TestImages.images;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -52,7 +69,7 @@ public class ImageAPIClientTest {
 
         // Given a mock images response from the image API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_OK);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         Images mockImagesResponse = mockImagesResponse(mockHttpResponse);
 
@@ -84,7 +101,7 @@ public class ImageAPIClientTest {
 
         // Given a mock images response from the image API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_OK);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         Images mockImagesResponse = mockImagesResponse(mockHttpResponse);
 
@@ -116,7 +133,7 @@ public class ImageAPIClientTest {
 
         // Given a request to the image API that returns a 500
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_INTERNAL_SERVER_ERROR);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When getImages is called
         // Then the expected exception is thrown
@@ -132,7 +149,7 @@ public class ImageAPIClientTest {
 
         // Given a request to the image API that returns a 401
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_UNAUTHORIZED);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When getImages is called
         // Then the expected exception is thrown
@@ -140,6 +157,139 @@ public class ImageAPIClientTest {
                 () -> imageClient.getImages(COLLECTION_ID));
     }
 
+    @Test
+    public void testImageAPI_getImage() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a mock image response from the image API
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_OK);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+        MockHttp.responseBody(mockHttpResponse, image(IMAGE_ID, "published"));
+
+        // When getImage is called
+        Image actualImage = imageAPIClient.getImage(IMAGE_ID);
+
+        HttpRequestBase httpRequest = captureHttpRequest(mockHttpClient);
+
+        // Then the image is requested by id
+        assertEquals("/images/" + IMAGE_ID, httpRequest.getURI().getPath());
+
+        // Then the response should be whats returned from the image API
+        assertEquals(IMAGE_ID, actualImage.getId());
+        assertEquals("published", actualImage.getState());
+    }
+
+    @Test
+    public void testImageAPI_getImage_notFound() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a request to the image API that returns a 404
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_NOT_FOUND);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+
+        // When getImage is called
+        // Then the expected exception is thrown
+        assertThrows(ImageAPIException.class,
+                () -> imageAPIClient.getImage(IMAGE_ID));
+    }
+
+    @Test
+    public void testImageAPI_getImage_fromCollection() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a mock image in the collection from the image API
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_OK);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+        MockHttp.responseBody(mockHttpResponse, image(IMAGE_ID, "published"));
+
+        // When getImage is called with a collection ID
+        Image actualImage = imageAPIClient.getImage(COLLECTION_ID, IMAGE_ID);
+
+        HttpRequestBase httpRequest = captureHttpRequest(mockHttpClient);
+
+        // Then a single lookup is served by the image's own endpoint rather than a listing of the collection
+        assertEquals("/images/" + IMAGE_ID, httpRequest.getURI().getPath());
+        assertEquals(IMAGE_ID, actualImage.getId());
+    }
+
+    @Test
+    public void testImageAPI_getImage_fromCollection_tenantViewsShareThreads() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a mock image in the collection from the image API
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenAnswer(invocation -> {
+            CloseableHttpResponse resp = MockHttp.response(HttpStatus.SC_OK);
+            MockHttp.responseBody(resp, image(IMAGE_ID, "published"));
+            return resp;
+        });
+        long schedulersBefore = liveThreads("image-batch-scheduler");
+
+        // When many tenant clients look up an image from a collection and are never closed
+        for (int i = 0; i < 50; i++) {
+            imageAPIClient.withServiceAuthToken("tenant-" + i).getImage(COLLECTION_ID, IMAGE_ID);
+        }
+
+        // Then they share the batching threads of the client they came from
+        assertTrue(liveThreads("image-batch-scheduler") - schedulersBefore <= 1);
+
+        imageAPIClient.close();
+    }
+
+    @Test
+    public void testImageAPI_createImage() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a mock image creation response from the image API
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_CREATED);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+        MockHttp.responseBody(mockHttpResponse, image(IMAGE_ID, "created"));
+
+        Image.Licence licence = new Image.Licence();
+        licence.setTitle("Open Government Licence v3.0");
+        Image newImage = new Image();
+        newImage.setCollectionId(COLLECTION_ID);
+        newImage.setFilename("chart.png");
+        newImage.setLicense(licence);
+
+        // When createImage is called
+        Image actualImage = imageAPIClient.createImage(newImage);
+
+        HttpRequestBase httpRequest = captureHttpRequest(mockHttpClient);
+
+        // Then the image is posted to the images endpoint as JSON
+        assertEquals("POST", httpRequest.getMethod());
+        assertEquals("/images", httpRequest.getURI().getPath());
+        String body = EntityUtils.toString(((HttpEntityEnclosingRequest) httpRequest).getEntity());
+        assertTrue(body.contains("\"collection_id\":\"" + COLLECTION_ID + "\""));
+        assertTrue(body.contains("\"title\":\"Open Government Licence v3.0\""));
+        assertFalse(body.contains("\"id\""));
+
+        // Then the created image is returned with its id
+        assertEquals(IMAGE_ID, actualImage.getId());
+        assertEquals("created", actualImage.getState());
+    }
+
+    @Test
+    public void testImageAPI_createImage_invalidRequest() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a request to the image API that returns a 400
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_BAD_REQUEST);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+
+        // When createImage is called
+        // Then the expected exception is thrown
+        ImageAPIException e = assertThrows(ImageAPIException.class,
+                () -> imageAPIClient.createImage(new Image()));
+        assertEquals(HttpStatus.SC_BAD_REQUEST, e.getCode());
+    }
+
     @Test
     public void testImageAPI_publishImage() throws Exception {
         CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
@@ -147,7 +297,7 @@ public class ImageAPIClientTest {
 
         // Given a mock image publishing response from the image API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_NO_CONTENT);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When publishImage is called
         imageAPIClient.publishImage(IMAGE_ID);
@@ -166,7 +316,7 @@ public class ImageAPIClientTest {
 
         // Given a mock image publishing response from the image API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_BAD_REQUEST);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When publishImage is called
         // Then the expected exception is thrown
@@ -181,7 +331,7 @@ public class ImageAPIClientTest {
 
         // Given a mock image publishing response from the dataset API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_UNAUTHORIZED);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When publishImage is called
         // Then the expected exception is thrown
@@ -196,7 +346,7 @@ public class ImageAPIClientTest {
 
         // Given a mock image publishing response from the image API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_FORBIDDEN);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When publishImage is called
         // Then the expected exception is thrown
@@ -211,7 +361,7 @@ public class ImageAPIClientTest {
 
         // Given a mock image publishing response from the image API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_NOT_FOUND);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When publishImage is called
         // Then the expected exception is thrown
@@ -226,7 +376,7 @@ public class ImageAPIClientTest {
 
         // Given a mock image publishing response from the image API
         CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_INTERNAL_SERVER_ERROR);
-        when(mockHttpClient.execute(any(HttpRequestBase.class))).thenReturn(mockHttpResponse);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
 
         // When publishImage is called
         // Then the expected exception is thrown
@@ -234,6 +384,253 @@ public class ImageAPIClientTest {
                 () -> imageAPIClient.publishImage(IMAGE_ID));
     }
 
+    @Test
+    public void testImageAPI_getImages_page() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a mock images response from the image API
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_OK);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+        mockImagesResponse(mockHttpResponse);
+
+        // When getImages is called for a page of a collection
+        imageAPIClient.getImages(COLLECTION_ID, 20, 10);
+
+        HttpRequestBase httpRequest = captureHttpRequest(mockHttpClient);
+
+        // Then query params in the URI contain the paging parameters and collection ID
+        String query = httpRequest.getURI().getQuery();
+        assertTrue(query.contains("offset=20"));
+        assertTrue(query.contains("limit=10"));
+        assertTrue(query.contains("collection_id=" + COLLECTION_ID));
+    }
+
+    @Test
+    public void testImageAPI_publishCollection() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a collection listed over two pages, with one image already published and one that fails to publish
+        Images firstPage = images(3, image("1", "imported"), image("2", "published"));
+        Images secondPage = images(3, image("3", "imported"));
+        Set<Thread> publishThreads = ConcurrentHashMap.newKeySet();
+
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenAnswer(invocation -> {
+            HttpRequestBase req = invocation.getArgument(0);
+            String path = req.getURI().getPath();
+            if (path.equals("/images")) {
+                CloseableHttpResponse resp = MockHttp.response(HttpStatus.SC_OK);
+                MockHttp.responseBody(resp, req.getURI().getQuery().contains("offset=0") ? firstPage : secondPage);
+                return resp;
+            }
+            publishThreads.add(Thread.currentThread());
+            return MockHttp.response(path.equals("/images/3/publish") ?
+                    HttpStatus.SC_FORBIDDEN : HttpStatus.SC_NO_CONTENT);
+        });
+
+        // When publishCollection is called
+        PublishSummary summary = imageAPIClient.publishCollection(COLLECTION_ID, new PublishOptions(2, 2,
+                PublishOptions.DEFAULT_PUBLISHABLE_STATES));
+
+        // Then both pages are listed and only the publishable images are published
+        assertEquals(2, summary.getPagesFetched());
+        assertEquals(3, summary.getImagesListed());
+        assertEquals(Collections.singletonList("1"), summary.getPublished());
+        assertEquals(Collections.singletonList("2"), summary.getSkipped());
+
+        // Then the failed publish is reported against its image
+        assertFalse(summary.isSuccessful());
+        ImageAPIException failure = (ImageAPIException) summary.getFailures().get("3");
+        assertEquals(HttpStatus.SC_FORBIDDEN, failure.getCode());
+
+        // Then the publishes ran on the client's shared daemon threads
+        assertFalse(publishThreads.isEmpty());
+        for (Thread thread : publishThreads) {
+            assertTrue(thread.getName().startsWith("image-request-worker-"));
+            assertTrue(thread.isDaemon());
+        }
+    }
+
+    @Test
+    public void testImageAPI_publishCollection_listingError() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a request to list the collection that returns a 500
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+
+        // When publishCollection is called
+        // Then the expected exception is thrown
+        assertThrows(ImageAPIException.class,
+                () -> imageAPIClient.publishCollection(COLLECTION_ID, new PublishOptions()));
+    }
+
+    @Test
+    public void testImageAPI_publishCollection_listingErrorAfterPublishes() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a second listing page that returns a 500 while a slow publish from the first page is in flight
+        Images firstPage = images(3, image("1", "imported"), image("2", "published"));
+        AtomicInteger publishesCompleted = new AtomicInteger();
+
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenAnswer(invocation -> {
+            HttpRequestBase req = invocation.getArgument(0);
+            if (req.getURI().getPath().equals("/images")) {
+                if (!req.getURI().getQuery().contains("offset=0")) {
+                    return MockHttp.response(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                }
+                CloseableHttpResponse resp = MockHttp.response(HttpStatus.SC_OK);
+                MockHttp.responseBody(resp, firstPage);
+                return resp;
+            }
+            Thread.sleep(200);
+            publishesCompleted.incrementAndGet();
+            return MockHttp.response(HttpStatus.SC_FORBIDDEN);
+        });
+
+        // When publishCollection is called
+        ImageAPIException e = assertThrows(ImageAPIException.class,
+                () -> imageAPIClient.publishCollection(COLLECTION_ID, new PublishOptions(2, 2,
+                        PublishOptions.DEFAULT_PUBLISHABLE_STATES)));
+
+        // Then the listing failure is thrown once the publish in flight has completed
+        assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, e.getCode());
+        assertEquals(1, publishesCompleted.get());
+
+        // Then the failed publish is attached to it
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals(HttpStatus.SC_FORBIDDEN, ((ImageAPIException) e.getSuppressed()[0]).getCode());
+    }
+
+    @Test
+    public void testImageAPI_publishCollection_publishesWhileListing() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a second listing page that is only returned once an image from the first page has been published
+        Images firstPage = images(3, image("1", "imported"), image("2", "imported"));
+        Images secondPage = images(3, image("3", "imported"));
+        CountDownLatch firstPagePublished = new CountDownLatch(1);
+
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenAnswer(invocation -> {
+            HttpRequestBase req = invocation.getArgument(0);
+            if (req.getURI().getPath().equals("/images")) {
+                boolean first = req.getURI().getQuery().contains("offset=0");
+                if (!first && !firstPagePublished.await(5, TimeUnit.SECONDS)) {
+                    return MockHttp.response(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                }
+                CloseableHttpResponse resp = MockHttp.response(HttpStatus.SC_OK);
+                MockHttp.responseBody(resp, first ? firstPage : secondPage);
+                return resp;
+            }
+            if (!req.getURI().getPath().equals("/images/3/publish")) {
+                firstPagePublished.countDown();
+            }
+            return MockHttp.response(HttpStatus.SC_NO_CONTENT);
+        });
+
+        // When publishCollection is called
+        PublishSummary summary = imageAPIClient.publishCollection(COLLECTION_ID, new PublishOptions(2, 2,
+                PublishOptions.DEFAULT_PUBLISHABLE_STATES));
+
+        // Then the first page's images are published while the second page is still being fetched
+        assertTrue(summary.isSuccessful());
+        assertEquals(2, summary.getPagesFetched());
+        assertEquals(3, summary.getPublished().size());
+    }
+
+    @Test
+    public void testImageClient_defaultPublishCollection() throws Exception {
+        // Given an implementation of ImageClient with only the original methods
+        List<String> publishRequests = new ArrayList<>();
+        ImageClient imageClient = new ImageClient() {
+            @Override
+            public Images getImages(String collectionID) {
+                return images(3, image("1", "imported"), image("2", "published"), image("3", "imported"));
+            }
+
+            @Override
+            public void publishImage(String imageId) throws ImageAPIException {
+                publishRequests.add(imageId);
+                if (imageId.equals("3")) {
+                    throw new ImageAPIException("forbidden", HttpStatus.SC_FORBIDDEN);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // When publishCollection is called
+        PublishSummary summary = imageClient.publishCollection(COLLECTION_ID, new PublishOptions());
+
+        // Then the publishable images are published one at a time from the listing
+        assertEquals(Arrays.asList("1", "3"), publishRequests);
+        assertEquals(Collections.singletonList("1"), summary.getPublished());
+        assertEquals(Collections.singletonList("2"), summary.getSkipped());
+        assertEquals(HttpStatus.SC_FORBIDDEN, ((ImageAPIException) summary.getFailures().get("3")).getCode());
+        assertEquals(3, summary.getImagesListed());
+    }
+
+    @Test
+    public void testImageAPI_withServiceAuthToken() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        ImageClient imageAPIClient = getImageClient(mockHttpClient);
+
+        // Given a mock image publishing response from the image API
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_NO_CONTENT);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+
+        // When publishImage is called on a client for another tenant's token
+        String tenantToken = "tenant-token";
+        try (ImageClient tenantClient = imageAPIClient.withServiceAuthToken(tenantToken)) {
+            tenantClient.publishImage(IMAGE_ID);
+        }
+
+        HttpRequestBase httpRequest = captureHttpRequest(mockHttpClient);
+
+        // Then the request should contain the tenant's service token header
+        String actualServiceToken = httpRequest.getFirstHeader(SERVICE_TOKEN_HEADER_NAME).getValue();
+        assertEquals(tenantToken, actualServiceToken);
+
+        // Then closing the tenant client leaves the shared http client open
+        verify(mockHttpClient, never()).close();
+    }
+
+    @Test
+    public void testImageAPI_serviceTokenProvider() throws Exception {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        AtomicInteger calls = new AtomicInteger();
+        ImageClient imageAPIClient = ImageAPIClient.create(IMAGE_API_URL,
+                () -> "token-" + calls.incrementAndGet(), mockHttpClient);
+
+        // Given a mock image publishing response from the image API
+        CloseableHttpResponse mockHttpResponse = MockHttp.response(HttpStatus.SC_NO_CONTENT);
+        when(mockHttpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenReturn(mockHttpResponse);
+
+        // When publishImage is called
+        imageAPIClient.publishImage(IMAGE_ID);
+
+        HttpRequestBase httpRequest = captureHttpRequest(mockHttpClient);
+
+        // Then the request should contain the token from the provider
+        assertEquals("token-1", httpRequest.getFirstHeader(SERVICE_TOKEN_HEADER_NAME).getValue());
+
+        // Then closing the client closes the http client it was created with
+        imageAPIClient.close();
+        verify(mockHttpClient).close();
+    }
+
+    private static long liveThreads(String namePrefix) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(namePrefix))
+                .count();
+    }
+
     private ImageClient getImageClient(CloseableHttpClient mockHttpClient) throws URISyntaxException {
         return new ImageAPIClient(IMAGE_API_URL, SERVICE_AUTH_TOKEN, mockHttpClient);
     }
@@ -251,7 +648,7 @@ public class ImageAPIClientTest {
 
     private HttpRequestBase captureHttpRequest(CloseableHttpClient mockHttpClient) throws IOException {
         ArgumentCaptor<HttpRequestBase> requestCaptor = ArgumentCaptor.forClass(HttpRequestBase.class);
-        verify(mockHttpClient).execute(requestCaptor.capture());
+        verify(mockHttpClient).execute(requestCaptor.capture(), any(HttpContext.class));
         return requestCaptor.getValue();
     }
 }
@@ -0,0 +1,211 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import com.github.onsdigital.dp.image.api.client.model.Images;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.onsdigital.dp.image.api.client.TestImages.image;
+import static com.github.onsdigital.dp.image.api.client.TestImages.images;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ImageBatchLoaderTest {
+
+    private static final String COLLECTION_ID = "col123";
+
+    @Test
+    public void testImageBatchLoader_coalescesLookups() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        when(mockClient.getImages(eq(COLLECTION_ID), eq(0), anyInt())).thenReturn(images(image("1"), image("2")));
+
+        try (ImageBatchLoader loader = listingLoader(mockClient, Duration.ofMillis(50), 100)) {
+
+            // When several images in a collection are looked up within the window
+            CompletableFuture<Image> first = loader.load(COLLECTION_ID, "1");
+            CompletableFuture<Image> second = loader.load(COLLECTION_ID, "2");
+            CompletableFuture<Image> duplicate = loader.load(COLLECTION_ID, "1");
+
+            // Then each lookup is completed with its own image
+            assertEquals("1", first.get(5, TimeUnit.SECONDS).getId());
+            assertEquals("2", second.get(5, TimeUnit.SECONDS).getId());
+
+            // Then lookups of the same image share a result
+            assertSame(first, duplicate);
+        }
+
+        // Then the collection is only listed once
+        verify(mockClient, times(1)).getImages(eq(COLLECTION_ID), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testImageBatchLoader_pagesUntilFound() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        Images firstPage = images(image("1"));
+        firstPage.setTotalCount(2);
+        Images secondPage = images(image("2"));
+        secondPage.setTotalCount(2);
+        when(mockClient.getImages(eq(COLLECTION_ID), eq(0), anyInt())).thenReturn(firstPage);
+        when(mockClient.getImages(eq(COLLECTION_ID), eq(1), anyInt())).thenReturn(secondPage);
+
+        try (ImageBatchLoader loader = listingLoader(mockClient, Duration.ZERO, 100)) {
+
+            // When an image on the second page of the listing is looked up
+            // Then it is found
+            assertEquals("2", loader.load(COLLECTION_ID, "2").get(5, TimeUnit.SECONDS).getId());
+        }
+    }
+
+    @Test
+    public void testImageBatchLoader_notFound() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        when(mockClient.getImages(eq(COLLECTION_ID), eq(0), anyInt())).thenReturn(images(image("1")));
+
+        try (ImageBatchLoader loader = listingLoader(mockClient, Duration.ZERO, 100)) {
+
+            // When an image missing from the collection is looked up
+            CompletableFuture<Image> missing = loader.load(COLLECTION_ID, "404");
+
+            // Then the lookup fails with a not found error
+            ExecutionException e = assertThrows(ExecutionException.class, () -> missing.get(5, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.SC_NOT_FOUND, ((ImageAPIException) e.getCause()).getCode());
+        }
+    }
+
+    @Test
+    public void testImageBatchLoader_listingError() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        when(mockClient.getImages(eq(COLLECTION_ID), anyInt(), anyInt())).thenThrow(new IOException("boom"));
+
+        try (ImageBatchLoader loader = listingLoader(mockClient, Duration.ofMillis(50), 100)) {
+
+            // When the listing for a batch fails
+            CompletableFuture<Image> first = loader.load(COLLECTION_ID, "1");
+            CompletableFuture<Image> second = loader.load(COLLECTION_ID, "2");
+
+            // Then every lookup in the batch fails with the listing error
+            for (CompletableFuture<Image> future : Arrays.asList(first, second)) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    @Test
+    public void testImageBatchLoader_maxBatchSize() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        when(mockClient.getImages(eq(COLLECTION_ID), eq(0), anyInt())).thenReturn(images(image("1"), image("2")));
+
+        try (ImageBatchLoader loader = listingLoader(mockClient, Duration.ofMinutes(1), 2)) {
+
+            // When a full batch of lookups is made
+            List<CompletableFuture<Image>> futures = new ArrayList<>();
+            futures.add(loader.load(COLLECTION_ID, "1"));
+            futures.add(loader.load(COLLECTION_ID, "2"));
+
+            // Then the batch is loaded without waiting for the window to end
+            for (CompletableFuture<Image> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    public void testImageBatchLoader_smallBatchLookedUpById() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        Image other = image("2");
+        other.setCollectionId("other");
+        when(mockClient.getImage("1")).thenReturn(image("1"));
+        when(mockClient.getImage("2")).thenReturn(other);
+
+        try (ImageBatchLoader loader = new ImageBatchLoader(mockClient, Duration.ZERO, 100)) {
+
+            // When a single image is looked up
+            // Then it is fetched by its id rather than by listing the collection
+            assertEquals("1", loader.load(COLLECTION_ID, "1").get(5, TimeUnit.SECONDS).getId());
+            verify(mockClient, never()).getImages(anyString(), anyInt(), anyInt());
+
+            // Then an image from another collection is not found
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> loader.load(COLLECTION_ID, "2").get(5, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.SC_NOT_FOUND, ((ImageAPIException) e.getCause()).getCode());
+        }
+    }
+
+    @Test
+    public void testImageBatchLoader_listingCapped() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        Images firstPage = images(image("1"));
+        firstPage.setTotalCount(1000);
+        when(mockClient.getImages(eq(COLLECTION_ID), eq(0), anyInt())).thenReturn(firstPage);
+        when(mockClient.getImage("999")).thenReturn(image("999"));
+
+        try (ImageBatchLoader loader = new ImageBatchLoader(mockClient, Duration.ofMillis(50), 100, 1, 1,
+                new ClientExecutors(), true)) {
+
+            // When images beyond the pages the listing may fetch are looked up
+            CompletableFuture<Image> listed = loader.load(COLLECTION_ID, "1");
+            CompletableFuture<Image> beyond = loader.load(COLLECTION_ID, "999");
+
+            // Then the listing stops at its page limit and the rest are fetched by id
+            assertEquals("1", listed.get(5, TimeUnit.SECONDS).getId());
+            assertEquals("999", beyond.get(5, TimeUnit.SECONDS).getId());
+            verify(mockClient, times(1)).getImages(eq(COLLECTION_ID), anyInt(), anyInt());
+            verify(mockClient, never()).getImage("1");
+        }
+    }
+
+    @Test
+    public void testImageBatchLoader_sharedExecutors() throws Exception {
+        ImageClient mockClient = mock(ImageClient.class);
+        when(mockClient.getImage("1")).thenReturn(image("1"));
+
+        // Given executors shared by many loaders
+        try (ClientExecutors executors = new ClientExecutors(2)) {
+            List<ImageBatchLoader> loaders = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                loaders.add(new ImageBatchLoader(mockClient, Duration.ZERO, 100,
+                        ImageBatchLoader.DEFAULT_MIN_LISTING_BATCH_SIZE, ImageBatchLoader.DEFAULT_MAX_LISTING_PAGES,
+                        executors, false));
+            }
+
+            // When every loader serves a lookup and is left open
+            for (ImageBatchLoader loader : loaders) {
+                loader.load(COLLECTION_ID, "1").get(5, TimeUnit.SECONDS);
+            }
+
+            // Then the loaders share one scheduler thread and a bounded pool of loader threads
+            assertEquals(1, ((ThreadPoolExecutor) executors.batchScheduler()).getPoolSize());
+            assertTrue(((ThreadPoolExecutor) executors.batchLoaders()).getPoolSize() <= 2);
+        }
+    }
+
+    /**
+     * A loader that lists the collection for any size of batch
+     */
+    private static ImageBatchLoader listingLoader(ImageClient client, Duration window, int maxBatchSize) {
+        return new ImageBatchLoader(client, window, maxBatchSize, 1, ImageBatchLoader.DEFAULT_MAX_LISTING_PAGES,
+                new ClientExecutors(), true);
+    }
+}
@@ -0,0 +1,384 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImageDownloaderTest {
+
+    private static final String SERVICE_TOKEN = "12345";
+    private static final String DOWNLOAD_PATH = "/downloads/image.png";
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final byte[] content = new byte[1000];
+    private final List<StubServer.Request> requests = new CopyOnWriteArrayList<>();
+
+    private volatile String etag = "\"v1\"";
+
+    private StubServer server;
+    private ImageAPIClient client;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        new Random(42).nextBytes(content);
+        server = new StubServer(false);
+        client = new ImageAPIClient(server.url(), SERVICE_TOKEN);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testDownload_toChannel() throws Exception {
+        serve(this::ranged);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When the content is downloaded to a channel
+        long written = client.download(DOWNLOAD_PATH, Channels.newChannel(out));
+
+        // Then the whole content is written in one request with the service token
+        assertEquals(content.length, written);
+        assertArrayEquals(content, out.toByteArray());
+        assertEquals(1, requests.size());
+        assertEquals(SERVICE_TOKEN, requests.get(0).headers.get("Authorization"));
+    }
+
+    @Test
+    public void testDownload_otherHostWithoutToken() throws Exception {
+        serve(this::ranged);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When the content is served from a different host than the image API
+        String href = server.url().replace("localhost", "127.0.0.1") + DOWNLOAD_PATH;
+        client.download(href, Channels.newChannel(out));
+
+        // Then the service token is not sent with the request
+        assertArrayEquals(content, out.toByteArray());
+        assertNull(requests.get(0).headers.get("Authorization"));
+    }
+
+    @Test
+    public void testDownload_redirectToOtherHostWithoutToken() throws Exception {
+        serve(this::ranged);
+        String href = server.url().replace("localhost", "127.0.0.1") + DOWNLOAD_PATH;
+        server.handle("/redirect", request -> new StubServer.Response(HttpStatus.SC_MOVED_TEMPORARILY)
+                .header("Location", href));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When the image API redirects the download to a different host
+        client.download("/redirect", Channels.newChannel(out));
+
+        // Then the content is fetched from there without the service token
+        assertArrayEquals(content, out.toByteArray());
+        assertEquals(1, requests.size());
+        assertNull(requests.get(0).headers.get("Authorization"));
+    }
+
+    @Test
+    public void testDownload_parallelRanges() throws Exception {
+        serve(this::ranged);
+        Path target = dir.resolve("image.png");
+
+        // When the content is larger than one range
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 4, 100, true));
+
+        // Then it is fetched as one request per range and written in order
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(10, requests.size());
+        assertEquals("bytes=0-99", requests.get(0).headers.get("Range"));
+    }
+
+    @Test
+    public void testDownload_parallelRangesLimited() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        serve(request -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return ranged(request);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        Path target = dir.resolve("image.png");
+
+        // When the content is fetched as more ranges than the parallelism allows at once
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 3, 100, true));
+
+        // Then no more ranges than the parallelism are requested at once
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(10, requests.size());
+        assertTrue(maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testDownload_serverIgnoresRange() throws Exception {
+        serve(request -> new StubServer.Response(HttpStatus.SC_OK, content));
+        Path target = partialFile(10, etag);
+
+        // When the server does not support range requests
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 1, 10000, true));
+
+        // Then the file is replaced with the full content
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testDownload_resumesPartialFile() throws Exception {
+        serve(this::ranged);
+        Path target = partialFile(400, etag);
+
+        // When a partial file of the same content already exists
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 1, 10000, true));
+
+        // Then only the remaining bytes are requested, on condition that the content is unchanged
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(1, requests.size());
+        assertEquals("bytes=400-", requests.get(0).headers.get("Range"));
+        assertEquals(etag, requests.get(0).headers.get("If-Range"));
+        assertFalse(Files.exists(ImageDownloader.validatorFile(target)));
+    }
+
+    @Test
+    public void testDownload_partialFileNotResumedByDefault() throws Exception {
+        serve(this::ranged);
+        Path target = partialFile(400, etag);
+
+        // When a partial file exists but resuming is not enabled
+        long size = client.download(DOWNLOAD_PATH, target);
+
+        // Then the content is downloaded from the start
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(1, requests.size());
+        assertTrue(requests.get(0).headers.get("Range").startsWith("bytes=0-"));
+    }
+
+    @Test
+    public void testDownload_partialFileOfChangedContent() throws Exception {
+        serve(this::ranged);
+        Path target = partialFile(400, "\"v0\"");
+
+        // When the content has changed since the partial file was written
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 1, 10000, true));
+
+        // Then the server sends the whole content and it replaces the partial file
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testDownload_partialFileWithoutValidator() throws Exception {
+        serve(this::ranged);
+        Path target = dir.resolve("image.png");
+        Files.write(target, Arrays.copyOf(content, 400));
+
+        // When a partial file exists without the ETag of the content it came from
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 1, 10000, true));
+
+        // Then it is not trusted and the content is downloaded from the start
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertNull(requests.get(0).headers.get("Range"));
+    }
+
+    @Test
+    public void testDownload_alreadyComplete() throws Exception {
+        serve(this::ranged);
+        Path target = partialFile(content.length, etag);
+
+        // When the file was already fully downloaded and the content is unchanged
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 1, 10000, true));
+
+        // Then it is left as it is
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testDownload_staleFileOfSameLength() throws Exception {
+        serve(this::ranged);
+        Path target = dir.resolve("image.png");
+        Files.write(target, new byte[content.length]);
+
+        // When a file of the same length but other content already exists
+        long size = client.download(DOWNLOAD_PATH, target);
+
+        // Then it is replaced
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testDownload_rangeNotSatisfiableWithoutValidator() throws Exception {
+        serve(request -> request.headers.containsKey("If-Range")
+                ? new StubServer.Response(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header("Content-Range", "bytes */" + content.length)
+                : ranged(request));
+        Path target = dir.resolve("image.png");
+        Files.write(target, new byte[content.length]);
+        Files.write(ImageDownloader.validatorFile(target), etag.getBytes(StandardCharsets.UTF_8));
+
+        // When the server answers a resumed download of a full length file with a 416 that does not confirm the ETag
+        long size = client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 1, 10000, true));
+
+        // Then the file is not taken to be complete and the content is downloaded from the start
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(2, requests.size());
+        assertNull(requests.get(1).headers.get("Range"));
+    }
+
+    @Test
+    public void testDownload_failedRangeCanBeResumed() throws Exception {
+        serve(request -> "bytes=500-599".equals(request.headers.get("Range"))
+                ? new StubServer.Response(HttpStatus.SC_SERVICE_UNAVAILABLE)
+                : ranged(request));
+        Path target = dir.resolve("image.png");
+        DownloadOptions options = new DownloadOptions(64, 4, 100, true);
+
+        // When one of the ranges fails
+        ImageAPIException e = assertThrows(ImageAPIException.class,
+                () -> client.download(DOWNLOAD_PATH, target, options));
+
+        // Then the file holds only the bytes before the failed range
+        assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, e.getCode());
+        assertArrayEquals(Arrays.copyOf(content, 500), Files.readAllBytes(target));
+
+        // Then a later download continues from there
+        serve(this::ranged);
+        requests.clear();
+        assertEquals(content.length, client.download(DOWNLOAD_PATH, target, options));
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals("bytes=500-", requests.get(0).headers.get("Range"));
+        assertEquals(etag, requests.get(0).headers.get("If-Range"));
+    }
+
+    @Test
+    public void testDownload_contentChangedBetweenRanges() throws Exception {
+        serve(request -> {
+            StubServer.Response response = ranged(request);
+            etag = "\"v2\"";
+            return response;
+        });
+        Path target = dir.resolve("image.png");
+
+        // When the content changes after the first range was fetched
+        IOException e = assertThrows(IOException.class,
+                () -> client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 4, 100, true)));
+
+        // Then the ranges are not mixed into one file
+        assertTrue(e.getMessage().contains("changed during the download"));
+        assertArrayEquals(Arrays.copyOf(content, 100), Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testDownload_shortRange() throws Exception {
+        serve(request -> new StubServer.Response(HttpStatus.SC_PARTIAL_CONTENT, Arrays.copyOf(content, 50))
+                .header("Content-Range", "bytes 0-99/" + content.length));
+        Path target = dir.resolve("image.png");
+
+        // When fewer bytes are received than the range promised
+        IOException e = assertThrows(IOException.class,
+                () -> client.download(DOWNLOAD_PATH, target, new DownloadOptions(64, 4, 100, true)));
+
+        // Then the download fails
+        assertTrue(e.getMessage().contains("received 50 bytes"));
+    }
+
+    @Test
+    public void testDownload_notFound() throws Exception {
+        Path target = dir.resolve("image.png");
+
+        // When the content does not exist
+        ImageAPIException e = assertThrows(ImageAPIException.class, () -> client.download(DOWNLOAD_PATH, target));
+
+        // Then the status is reported
+        assertEquals(HttpStatus.SC_NOT_FOUND, e.getCode());
+        assertFalse(Files.size(target) > 0);
+    }
+
+    private void serve(Function<StubServer.Request, StubServer.Response> handler) {
+        server.handle(DOWNLOAD_PATH, request -> {
+            requests.add(request);
+            return handler.apply(request);
+        });
+    }
+
+    /**
+     * Write the start of the content to the target file with the ETag of an earlier download
+     */
+    private Path partialFile(int length, String etag) throws IOException {
+        Path target = dir.resolve("image.png");
+        Files.write(target, Arrays.copyOf(content, length));
+        Files.write(ImageDownloader.validatorFile(target), etag.getBytes(StandardCharsets.UTF_8));
+        return target;
+    }
+
+    /**
+     * Serve the content with its ETag, honouring a single byte range and If-Range as most content servers do
+     */
+    private StubServer.Response ranged(StubServer.Request request) {
+        String etag = this.etag;
+        String range = request.headers.get("Range");
+        String ifRange = request.headers.get("If-Range");
+        if (range == null || (ifRange != null && !ifRange.equals(etag))) {
+            return new StubServer.Response(HttpStatus.SC_OK, content).header("ETag", etag);
+        }
+
+        Matcher matcher = RANGE.matcher(range);
+        assertTrue(matcher.matches());
+        int from = Integer.parseInt(matcher.group(1));
+        int to = matcher.group(2).isEmpty() ? content.length - 1
+                : Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+        if (from >= content.length) {
+            return new StubServer.Response(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", "bytes */" + content.length)
+                    .header("ETag", etag);
+        }
+
+        return new StubServer.Response(HttpStatus.SC_PARTIAL_CONTENT, Arrays.copyOfRange(content, from, to + 1))
+                .header("Content-Range", "bytes " + from + "-" + to + "/" + content.length)
+                .header("ETag", etag);
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.dp.image.api.client.exception.ImageAPIException;
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImageUploaderTest {
+
+    private static final String SERVICE_TOKEN = "12345";
+    private static final ObjectMapper json = new ObjectMapper();
+
+    private final Map<String, StubServer.Request> uploads = new ConcurrentHashMap<>();
+    private final Map<String, Image> updates = new ConcurrentHashMap<>();
+
+    private StubServer server;
+    private ImageAPIClient client;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new StubServer(false);
+        client = new ImageAPIClient(server.url(), SERVICE_TOKEN);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testUploadImage_fromFile() throws Exception {
+        // Given an upload endpoint that reports where the content was stored
+        serveUpload("1", new StubServer.Response(HttpStatus.SC_CREATED).header("Location", "/stored/1.png"));
+        serveUpdate("1");
+        byte[] content = content(300 * 1024);
+        Path source = Files.write(dir.resolve("1.png"), content);
+
+        List<Long> progress = new CopyOnWriteArrayList<>();
+        UploadOptions options = new UploadOptions(16 * 1024, 1, (imageId, sent, total) -> {
+            assertEquals(content.length, total);
+            progress.add(sent);
+        });
+
+        // When the file is uploaded
+        Image image = client.uploadImage("1", "/upload/1", source, options);
+
+        // Then the content is streamed with chunked transfer encoding and the service token
+        StubServer.Request upload = uploads.get("1");
+        assertEquals("PUT", upload.method);
+        assertNull(upload.headers.get("Content-Length"));
+        assertEquals(SERVICE_TOKEN, upload.headers.get("Authorization"));
+        assertArrayEquals(content, upload.body);
+
+        // Then progress is reported as each buffer is sent
+        assertTrue(progress.size() >= content.length / (16 * 1024));
+        assertEquals(content.length, (long) progress.get(progress.size() - 1));
+
+        // Then the image is updated with the stored location
+        assertEquals(server.url() + "/stored/1.png", updates.get("1").getUpload().path);
+        assertEquals(server.url() + "/stored/1.png", image.getUpload().path);
+        assertEquals("uploaded", image.getState());
+    }
+
+    @Test
+    public void testUploadImage_fromChannel() throws Exception {
+        // Given an upload endpoint that does not report a location
+        serveUpload("2", new StubServer.Response(HttpStatus.SC_NO_CONTENT));
+        serveUpdate("2");
+        byte[] content = content(1000);
+
+        List<Long> totals = new CopyOnWriteArrayList<>();
+        UploadOptions options = new UploadOptions((imageId, sent, total) -> totals.add(total));
+
+        // When content is uploaded from a channel
+        Image image = client.uploadImage("2", "/upload/2",
+                Channels.newChannel(new ByteArrayInputStream(content)), options);
+
+        // Then the content is sent and its length reported as unknown
+        assertArrayEquals(content, uploads.get("2").body);
+        assertTrue(totals.stream().allMatch(total -> total == -1));
+
+        // Then the upload path is the location it was sent to
+        assertEquals(server.url() + "/upload/2", image.getUpload().path);
+    }
+
+    @Test
+    public void testUploadImage_uploadFailed() throws Exception {
+        // Given an upload endpoint that rejects the content
+        serveUpload("3", new StubServer.Response(HttpStatus.SC_FORBIDDEN));
+        serveUpdate("3");
+        Path source = Files.write(dir.resolve("3.png"), content(10));
+
+        // When the file is uploaded
+        // Then the expected exception is thrown and the image is not updated
+        ImageAPIException e = assertThrows(ImageAPIException.class,
+                () -> client.uploadImage("3", "/upload/3", source, new UploadOptions()));
+        assertEquals(HttpStatus.SC_FORBIDDEN, e.getCode());
+        assertFalse(updates.containsKey("3"));
+    }
+
+    @Test
+    public void testUploadImages_boundedParallelism() throws Exception {
+        // When files are uploaded one at a time
+        // Then no two uploads overlap
+        assertEquals(1, maxConcurrentUploads(1));
+
+        // When files are uploaded three at a time
+        // Then uploads overlap, but no more than three at once
+        int maxInFlight = maxConcurrentUploads(3);
+        assertTrue(maxInFlight > 1 && maxInFlight <= 3, "max in flight " + maxInFlight);
+    }
+
+    @Test
+    public void testUploadImages_failuresReported() throws Exception {
+        // Given an upload endpoint that fails one image, and a file that is missing
+        List<ImageUpload> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String imageId = "img" + i;
+            serveUpload(imageId, new StubServer.Response(imageId.equals("img2") ?
+                    HttpStatus.SC_INTERNAL_SERVER_ERROR : HttpStatus.SC_CREATED));
+            serveUpdate(imageId);
+            files.add(new ImageUpload(imageId, "/upload/" + imageId,
+                    Files.write(dir.resolve(imageId + ".png"), content(100))));
+        }
+        files.add(new ImageUpload("missing", "/upload/missing", dir.resolve("missing.png")));
+
+        // When the files are uploaded
+        UploadSummary summary = client.uploadImages(files, new UploadOptions(1024, 2, (id, sent, total) -> {
+        }));
+
+        // Then a failed upload does not stop the others, or the summary
+        assertFalse(summary.isSuccessful());
+        assertEquals(3, summary.getUploaded().size());
+        assertEquals(300, summary.getBytesUploaded());
+        assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR,
+                ((ImageAPIException) summary.getFailures().get("img2")).getCode());
+        assertTrue(summary.getFailures().get("missing") instanceof NoSuchFileException);
+        assertFalse(updates.containsKey("img2"));
+    }
+
+    @Test
+    public void testUploadImages_errorReported() throws Exception {
+        // Given a progress listener that fails with an error rather than an exception
+        serveUpload("1", new StubServer.Response(HttpStatus.SC_CREATED));
+        serveUpdate("1");
+        List<ImageUpload> files = Collections.singletonList(
+                new ImageUpload("1", "/upload/1", Files.write(dir.resolve("1.png"), content(100))));
+        UploadOptions options = new UploadOptions(1024, 1, (id, sent, total) -> {
+            throw new AssertionError("listener failed");
+        });
+
+        // When the file is uploaded
+        UploadSummary summary = client.uploadImages(files, options);
+
+        // Then the error is reported as the image's failure
+        Exception failure = summary.getFailures().get("1");
+        assertTrue(failure instanceof ExecutionException);
+        assertTrue(failure.getCause() instanceof AssertionError);
+        assertTrue(summary.getUploaded().isEmpty());
+    }
+
+    @Test
+    public void testUploadImages_duplicateImage() throws Exception {
+        // Given two uploads for the same image
+        Path source = Files.write(dir.resolve("1.png"), content(10));
+        List<ImageUpload> files = Arrays.asList(new ImageUpload("1", "/upload/1", source),
+                new ImageUpload("1", "/upload/1b", source));
+
+        // When the files are uploaded
+        // Then they are rejected before anything is uploaded
+        assertThrows(IllegalArgumentException.class, () -> client.uploadImages(files, new UploadOptions()));
+        assertTrue(uploads.isEmpty());
+    }
+
+    /**
+     * Upload six files with the given parallelism to an endpoint that holds each upload for a while
+     *
+     * @return The most uploads that were in flight at once
+     */
+    private int maxConcurrentUploads(int parallelism) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<ImageUpload> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            String imageId = "img" + i;
+            server.handle("/upload/" + imageId, req -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return new StubServer.Response(HttpStatus.SC_CREATED);
+            });
+            serveUpdate(imageId);
+            files.add(new ImageUpload(imageId, "/upload/" + imageId,
+                    Files.write(dir.resolve(imageId + ".png"), content(100))));
+        }
+
+        UploadSummary summary = client.uploadImages(files, new UploadOptions(1024, parallelism, (id, sent, total) -> {
+        }));
+        assertTrue(summary.isSuccessful());
+        return maxInFlight.get();
+    }
+
+    private void serveUpload(String imageId, StubServer.Response response) {
+        server.handle("/upload/" + imageId, req -> {
+            uploads.put(imageId, req);
+            return response;
+        });
+    }
+
+    /**
+     * Serve PUT /images/{id} as the image API does, returning the image with the update applied
+     */
+    private void serveUpdate(String imageId) {
+        server.handle("/images/" + imageId, req -> {
+            try {
+                Image update = json.readValue(req.body, Image.class);
+                updates.put(imageId, update);
+                update.setId(imageId);
+                update.setState("uploaded");
+                return new StubServer.Response(HttpStatus.SC_OK, json.writeValueAsBytes(update));
+            } catch (Exception e) {
+                return new StubServer.Response(HttpStatus.SC_BAD_REQUEST, e.toString());
+            }
+        });
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+}
@@ -2,10 +2,18 @@ package com.github.onsdigital.dp.image.api.client;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 import org.junit.jupiter.api.Test;
 
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -32,6 +40,7 @@ public class RetryStrategyTest {
 
         boolean retryRequest = retryStrategy.retryRequest(httpResponse, executionCount, httpContext);
         assertTrue(retryRequest);
+        assertEquals(executionCount, httpContext.getAttribute(RetryStrategy.RETRY_COUNT_ATTRIBUTE));
     }
 
     @Test
@@ -68,4 +77,65 @@ public class RetryStrategyTest {
 
         assertFalse(retryRequest);
     }
+
+    @Test
+    void testRetryStrategy_retryRequest_ioError() {
+
+        int executionCount = 1;
+        HttpContext httpContext = new BasicHttpContext();
+        httpContext.setAttribute(HttpClientContext.HTTP_REQUEST, new HttpGet("http://imageapi/images"));
+
+        boolean retryRequest = retryStrategy.retryRequest(new NoHttpResponseException("dropped"), executionCount,
+                httpContext);
+        assertTrue(retryRequest);
+        assertEquals(1, httpContext.getAttribute(RetryStrategy.RETRY_COUNT_ATTRIBUTE));
+    }
+
+    @Test
+    void testRetryStrategy_retryRequest_ioErrorIdempotentWithBody() {
+
+        int executionCount = 1;
+        HttpContext httpContext = new BasicHttpContext();
+        httpContext.setAttribute(HttpClientContext.HTTP_REQUEST, new HttpPut("http://imageapi/images/1"));
+        httpContext.setAttribute(HttpClientContext.HTTP_REQ_SENT, true);
+
+        boolean retryRequest = retryStrategy.retryRequest(new NoHttpResponseException("dropped"), executionCount,
+                httpContext);
+        assertTrue(retryRequest);
+    }
+
+    @Test
+    void testRetryStrategy_retryRequest_ioErrorAfterPostSent() {
+
+        int executionCount = 1;
+        HttpContext httpContext = new BasicHttpContext();
+        httpContext.setAttribute(HttpClientContext.HTTP_REQUEST, new HttpPost("http://imageapi/images/1/publish"));
+        httpContext.setAttribute(HttpClientContext.HTTP_REQ_SENT, true);
+
+        boolean retryRequest = retryStrategy.retryRequest(new NoHttpResponseException("dropped"), executionCount,
+                httpContext);
+        assertFalse(retryRequest);
+        assertFalse(retryStrategy.retryRequest(new NoHttpResponseException("dropped"), "POST", executionCount));
+    }
+
+    @Test
+    void testRetryStrategy_retryRequest_ioErrorBeforePostSent() {
+
+        int executionCount = 1;
+        HttpContext httpContext = new BasicHttpContext();
+        httpContext.setAttribute(HttpClientContext.HTTP_REQUEST, new HttpPost("http://imageapi/images/1/publish"));
+        httpContext.setAttribute(HttpClientContext.HTTP_REQ_SENT, false);
+
+        boolean retryRequest = retryStrategy.retryRequest(new NoHttpResponseException("dropped"), executionCount,
+                httpContext);
+        assertTrue(retryRequest);
+    }
+
+    @Test
+    void testRetryStrategy_retryRequest_ioErrorNotRetriable() {
+
+        assertFalse(retryStrategy.retryRequest(new ConnectException("refused"), "GET", 1));
+        assertFalse(retryStrategy.retryRequest(new SocketTimeoutException("timed out"), "GET", 1));
+        assertFalse(retryStrategy.retryRequest(new NoHttpResponseException("dropped"), "GET", MAX_RETRIES + 1));
+    }
 }
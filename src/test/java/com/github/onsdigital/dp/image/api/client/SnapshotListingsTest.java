@@ -0,0 +1,200 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import com.github.onsdigital.dp.image.api.client.model.Images;
+import com.github.onsdigital.dp.image.api.client.snapshot.Snapshot;
+import com.github.onsdigital.dp.image.api.client.snapshot.SnapshotStore;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static com.github.onsdigital.dp.image.api.client.TestImages.image;
+import static com.github.onsdigital.dp.image.api.client.TestImages.images;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotListingsTest {
+
+    private static final String COLLECTION_ID = "col123";
+    private static final ObjectMapper json = new ObjectMapper();
+
+    private final List<StubServer.Request> requests = new CopyOnWriteArrayList<>();
+
+    private StubServer server;
+    private ImageAPIClient client;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new StubServer(false);
+        client = new ImageAPIClient(server.url(), "12345");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testSnapshotListings_fetchedWhenMissing() throws Exception {
+        serve("\"v1\"", image("1"));
+        SnapshotStore store = new SnapshotStore(dir);
+
+        // When a collection with no snapshot is listed
+        try (ImageClient cached = client.withSnapshotStore(store)) {
+            Images images = cached.getImages(COLLECTION_ID);
+
+            // Then it is fetched and stored with its ETag
+            assertEquals("1", images.getItems().get(0).getId());
+            assertEquals(1, requests.size());
+            Snapshot snapshot = store.read(COLLECTION_ID);
+            assertEquals("\"v1\"", snapshot.getEtag());
+            assertEquals("1", snapshot.getImages().getItems().get(0).getId());
+        }
+    }
+
+    @Test
+    public void testSnapshotListings_notSharedWithOtherTokens() throws Exception {
+        // Given a listing that depends on the caller's token
+        server.handle("/images", req -> {
+            requests.add(req);
+            try {
+                Images listing = "tenant-a".equals(req.headers.get("Authorization")) ?
+                        images(image("1")) : images(image("2"));
+                return new StubServer.Response(HttpStatus.SC_OK, json.writeValueAsBytes(listing));
+            } catch (Exception e) {
+                return new StubServer.Response(HttpStatus.SC_INTERNAL_SERVER_ERROR, e.toString());
+            }
+        });
+        SnapshotStore store = new SnapshotStore(dir);
+
+        try (ImageClient tenantA = client.withServiceAuthToken("tenant-a").withSnapshotStore(store);
+             ImageClient tenantB = tenantA.withServiceAuthToken("tenant-b")) {
+
+            // When one tenant's listing is stored and another tenant lists the same collection
+            assertEquals("1", tenantA.getImages(COLLECTION_ID).getItems().get(0).getId());
+            Images images = tenantB.getImages(COLLECTION_ID);
+
+            // Then the other tenant is not served the stored listing, and does not replace it
+            assertEquals("2", images.getItems().get(0).getId());
+            assertEquals(2, requests.size());
+            assertEquals("1", store.read(COLLECTION_ID).getImages().getItems().get(0).getId());
+        }
+    }
+
+    @Test
+    public void testSnapshotListings_servedAfterRestart() throws Exception {
+        // Given a snapshot written before a restart
+        SnapshotStore store = new SnapshotStore(dir, SnapshotStore.DEFAULT_MAX_TOTAL_BYTES, Duration.ofHours(1));
+        store.write(new Snapshot(COLLECTION_ID, images(image("1")), "\"v1\"", Instant.now()));
+        server.handle("/images", req -> {
+            requests.add(req);
+            return new StubServer.Response(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        });
+
+        // When the collection is listed by a new client
+        try (ImageClient cached = client.withSnapshotStore(new SnapshotStore(dir, 1024 * 1024, Duration.ofHours(1)))) {
+            Images images = cached.getImages(COLLECTION_ID);
+
+            // Then the snapshot is served without asking the image API
+            assertEquals("1", images.getItems().get(0).getId());
+            assertTrue(requests.isEmpty());
+        }
+    }
+
+    @Test
+    public void testSnapshotListings_revalidatedUnchanged() throws Exception {
+        // Given a snapshot that is due to be revalidated
+        SnapshotStore store = new SnapshotStore(dir, SnapshotStore.DEFAULT_MAX_TOTAL_BYTES, Duration.ZERO);
+        Instant fetchedAt = Instant.now().minus(Duration.ofHours(1));
+        store.write(new Snapshot(COLLECTION_ID, images(image("1")), "\"v1\"", fetchedAt));
+        server.handle("/images", req -> {
+            requests.add(req);
+            return "\"v1\"".equals(req.headers.get("If-None-Match")) ?
+                    new StubServer.Response(HttpStatus.SC_NOT_MODIFIED) :
+                    new StubServer.Response(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        });
+
+        // When the collection is listed
+        try (ImageClient cached = client.withSnapshotStore(store)) {
+            Images images = cached.getImages(COLLECTION_ID);
+
+            // Then the snapshot is served straight away
+            assertEquals("1", images.getItems().get(0).getId());
+
+            // Then it is revalidated in the background with its ETag and its fetch time renewed
+            await(() -> store.read(COLLECTION_ID).getFetchedAt().isAfter(fetchedAt));
+            assertEquals(1, requests.size());
+            assertEquals("collection_id=" + COLLECTION_ID, requests.get(0).query);
+            assertEquals("1", store.read(COLLECTION_ID).getImages().getItems().get(0).getId());
+        }
+    }
+
+    @Test
+    public void testSnapshotListings_revalidatedChanged() throws Exception {
+        // Given a snapshot that is due to be revalidated and a listing that has since changed
+        SnapshotStore store = new SnapshotStore(dir, SnapshotStore.DEFAULT_MAX_TOTAL_BYTES, Duration.ZERO);
+        store.write(new Snapshot(COLLECTION_ID, images(image("1")), "\"v1\"", Instant.EPOCH));
+        serve("\"v2\"", image("1"), image("2"));
+
+        // When the collection is listed
+        try (ImageClient cached = client.withSnapshotStore(store)) {
+            Images images = cached.getImages(COLLECTION_ID);
+
+            // Then the stale snapshot is served straight away
+            assertEquals(1, images.getItems().size());
+
+            // Then the new listing replaces it once revalidated
+            await(() -> "\"v2\"".equals(store.read(COLLECTION_ID).getEtag()));
+            assertEquals(2, cached.getImages(COLLECTION_ID).getItems().size());
+        }
+    }
+
+    @Test
+    public void testSnapshotListings_pagesNotCached() throws Exception {
+        serve("\"v1\"", image("1"));
+        SnapshotStore store = new SnapshotStore(dir);
+
+        // When a page of a collection is listed
+        try (ImageClient cached = client.withSnapshotStore(store)) {
+            cached.getImages(COLLECTION_ID, 0, 10);
+        }
+
+        // Then no snapshot is stored
+        assertNull(store.read(COLLECTION_ID));
+    }
+
+    private void serve(String etag, Image... items) {
+        server.handle("/images", req -> {
+            requests.add(req);
+            try {
+                return new StubServer.Response(HttpStatus.SC_OK, json.writeValueAsBytes(images(items)))
+                        .header("ETag", etag);
+            } catch (Exception e) {
+                return new StubServer.Response(HttpStatus.SC_INTERNAL_SERVER_ERROR, e.toString());
+            }
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for revalidation");
+            Thread.sleep(10);
+        }
+    }
+}
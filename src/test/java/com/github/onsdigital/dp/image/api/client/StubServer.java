@@ -0,0 +1,208 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.reactor.IOSessionListener;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A local HTTP server for tests, speaking either HTTP/1.1 or HTTP/2 with prior knowledge
+ */
+public class StubServer implements Closeable {
+
+    private final Map<String, Function<Request, Response>> handlers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpAsyncServer server;
+    private final boolean http2;
+    private final int port;
+
+    public StubServer(boolean http2) throws Exception {
+        this.http2 = http2;
+        server = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(http2 ? HttpVersionPolicy.FORCE_HTTP_2 : HttpVersionPolicy.FORCE_HTTP_1)
+                .setIOSessionListener(new ConnectionCounter())
+                .register("*", new Handler())
+                .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress("localhost", 0), URIScheme.HTTP).get();
+        port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    /**
+     * Handle requests for the given path, ignoring any query string
+     */
+    public StubServer handle(String path, Function<Request, Response> handler) {
+        handlers.put(path, handler);
+        return this;
+    }
+
+    public String url() {
+        return "http://localhost:" + port;
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    @Override
+    public void close() {
+        server.close(CloseMode.IMMEDIATE);
+        executor.shutdownNow();
+    }
+
+    public static class Request {
+        public final String method;
+        public final String path;
+        public final String query;
+        public final String protocol;
+        public final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        public final byte[] body;
+
+        private Request(HttpRequest request, byte[] body, HttpContext context) throws Exception {
+            this.method = request.getMethod();
+            this.path = request.getUri().getPath();
+            this.query = request.getUri().getQuery();
+            this.protocol = context.getProtocolVersion().format();
+            for (Header header : request.getHeaders()) {
+                headers.put(header.getName(), header.getValue());
+            }
+            this.body = body == null ? new byte[0] : body;
+        }
+    }
+
+    public static class Response {
+        public final int status;
+        public final byte[] body;
+        public final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        public Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public Response(int status, String body) {
+            this(status, body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public Response(int status) {
+            this(status, (byte[]) null);
+        }
+
+        public Response header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    private class Handler implements AsyncServerRequestHandler<Message<HttpRequest, byte[]>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, byte[]>> prepare(HttpRequest request,
+                                                                         EntityDetails entityDetails,
+                                                                         HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new BasicAsyncEntityConsumer());
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, byte[]> message,
+                           ResponseTrigger responseTrigger,
+                           HttpContext context) {
+
+            // Handlers may block, so run them off the I/O reactor thread.
+            executor.execute(() -> respond(message, responseTrigger, context));
+        }
+
+        private void respond(Message<HttpRequest, byte[]> message,
+                             ResponseTrigger responseTrigger,
+                             HttpContext context) {
+
+            Response response;
+            try {
+                Request request = new Request(message.getHead(), message.getBody(), context);
+                Function<Request, Response> handler = handlers.get(request.path);
+                response = handler == null ? new Response(404) : handler.apply(request);
+            } catch (Exception e) {
+                response = new Response(500, e.toString());
+            }
+
+            AsyncResponseBuilder builder = AsyncResponseBuilder.create(response.status);
+            for (Map.Entry<String, String> header : response.headers.entrySet()) {
+                builder.setHeader(header.getKey(), header.getValue());
+            }
+            if (response.body != null) {
+                builder.setEntity(response.body, ContentType.APPLICATION_OCTET_STREAM);
+                if (http2 && !response.headers.containsKey("Content-Length")) {
+                    // HttpCore leaves the length to the end of stream over HTTP/2, unlike most real servers.
+                    builder.setHeader("Content-Length", String.valueOf(response.body.length));
+                }
+            } else if (!http2) {
+                // HttpCore does not go back to reading a kept-alive HTTP/1.1 connection once a response without
+                // a body is submitted off the I/O thread, so close the connection instead.
+                builder.setHeader("Connection", "close");
+            }
+            try {
+                responseTrigger.submitResponse(builder.build(), context);
+            } catch (Exception e) {
+                // the client has gone away
+            }
+        }
+    }
+
+    private class ConnectionCounter implements IOSessionListener {
+        @Override
+        public void connected(IOSession session) {
+            connections.incrementAndGet();
+        }
+
+        @Override
+        public void startTls(IOSession session) {
+        }
+
+        @Override
+        public void inputReady(IOSession session) {
+        }
+
+        @Override
+        public void outputReady(IOSession session) {
+        }
+
+        @Override
+        public void timeout(IOSession session) {
+        }
+
+        @Override
+        public void exception(IOSession session, Exception ex) {
+        }
+
+        @Override
+        public void disconnected(IOSession session) {
+        }
+    }
+}
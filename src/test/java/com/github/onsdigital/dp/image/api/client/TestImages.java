@@ -0,0 +1,45 @@
+package com.github.onsdigital.dp.image.api.client;
+
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import com.github.onsdigital.dp.image.api.client.model.Images;
+
+import java.util.Arrays;
+
+public class TestImages {
+
+    public static final String COLLECTION_ID = "col123";
+
+    public static Image image(String id) {
+        return image(id, "imported");
+    }
+
+    public static Image image(String id, String state) {
+        Image image = new Image();
+        image.setId(id);
+        image.setCollectionId(COLLECTION_ID);
+        image.setState(state);
+        image.setFilename(id + ".png");
+        return image;
+    }
+
+    /**
+     * @return A listing that holds every image in the collection on its one page
+     */
+    public static Images images(Image... items) {
+        Images images = images(items.length, items);
+        images.setOffset(0);
+        images.setLimit(items.length);
+        return images;
+    }
+
+    /**
+     * @return One page of a listing of a collection of the given size
+     */
+    public static Images images(int totalCount, Image... items) {
+        Images images = new Images();
+        images.setItems(Arrays.asList(items));
+        images.setCount(items.length);
+        images.setTotalCount(totalCount);
+        return images;
+    }
+}
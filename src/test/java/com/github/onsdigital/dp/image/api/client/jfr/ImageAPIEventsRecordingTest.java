@@ -0,0 +1,103 @@
+package com.github.onsdigital.dp.image.api.client.jfr;
+
+import com.github.onsdigital.dp.image.api.client.ImageAPIClient;
+import com.github.onsdigital.dp.image.api.client.ImageClient;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Records the image API events with JFR. This class imports JFR, so it only loads on a runtime that has it.
+ */
+public class ImageAPIEventsRecordingTest {
+
+    private static final String IMAGES_RESPONSE =
+            "{\"count\":2,\"total_count\":2,\"items\":[{\"id\":\"1\"},{\"id\":\"2\"}]}";
+
+    private HttpServer server;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/images", exchange -> {
+            byte[] body = IMAGES_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testImageAPIEvents_recorded() throws Exception {
+        assumeTrue(ImageAPIEventsTest.isJfrPresent(), "JFR is not available on this runtime");
+
+        String url = "http://localhost:" + server.getAddress().getPort();
+        Path dump = Files.createTempFile("image-api", ".jfr");
+
+        // Given a recording with the image API events enabled
+        try (Recording recording = new Recording();
+             ImageClient client = new ImageAPIClient(url, "token")) {
+            recording.enable(RequestEvent.NAME);
+            recording.enable(ParseEvent.NAME);
+            recording.enable(PoolLeaseEvent.NAME);
+            recording.start();
+
+            // When getImages is called
+            client.getImages("col123");
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+
+        // Then a request event is recorded for the call
+        RecordedEvent request = single(events, RequestEvent.NAME);
+        assertEquals("getImages", request.getString("operation"));
+        assertEquals("/images", request.getString("path"));
+        assertEquals(200, request.getInt("status"));
+        assertEquals(0, request.getInt("retries"));
+        assertEquals(IMAGES_RESPONSE.length(), request.getLong("bytes"));
+
+        // Then a parse event is recorded with the number of items parsed
+        RecordedEvent parse = single(events, ParseEvent.NAME);
+        assertEquals("Images", parse.getString("type"));
+        assertEquals(2, parse.getInt("items"));
+
+        // Then a pool lease event is recorded for the connection
+        RecordedEvent lease = single(events, PoolLeaseEvent.NAME);
+        assertTrue(lease.getBoolean("leased"));
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+        assertEquals(1, matching.size(), "expected one " + name + " event");
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.onsdigital.dp.image.api.client.jfr;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that need no JFR classes, so that they load and run on a runtime without JFR. Tests that record events
+ * are in {@link ImageAPIEventsRecordingTest}.
+ */
+public class ImageAPIEventsTest {
+
+    @Test
+    public void testImageAPIEvents_isAvailable() {
+        // Then the events are available exactly when the runtime has JFR
+        assertEquals(isJfrPresent(), ImageAPIEvents.isAvailable());
+    }
+
+    static boolean isJfrPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ImageAPIEventsTest.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.onsdigital.dp.image.api.client.snapshot;
+
+import com.github.onsdigital.dp.image.api.client.TestImages;
+import com.github.onsdigital.dp.image.api.client.model.Image;
+import com.github.onsdigital.dp.image.api.client.model.Images;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.onsdigital.dp.image.api.client.TestImages.image;
+import static com.github.onsdigital.dp.image.api.client.TestImages.images;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotStoreTest {
+
+    private static final Instant FETCHED_AT = Instant.parse("2026-01-02T03:04:05.678Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSnapshotStore_roundTrip() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir);
+
+        // Given a listing with every field of an image set, and one with none
+        Image full = image("1");
+        full.setError("none");
+        full.setType("chart");
+        Image.Licence licence = new Image.Licence();
+        licence.setTitle("Open Government Licence v3.0");
+        licence.setHref("http://licence/ogl");
+        full.setLicense(licence);
+        Image.Links links = new Image.Links();
+        links.self = "http://localhost/images/1";
+        links.downloads = "http://localhost/images/1/downloads";
+        full.setLinks(links);
+        Image.Upload upload = new Image.Upload();
+        upload.path = "s3://bucket/1.png";
+        full.setUpload(upload);
+
+        Images images = images(full, new Image());
+        images.setLimit(null);
+
+        // When the snapshot is written and read back
+        store.write(new Snapshot("col1", images, "\"etag-1\"", FETCHED_AT));
+        Snapshot snapshot = store.read("col1");
+
+        // Then every field is preserved
+        assertNotNull(snapshot);
+        assertEquals("col1", snapshot.getCollectionId());
+        assertEquals("\"etag-1\"", snapshot.getEtag());
+        assertEquals(FETCHED_AT, snapshot.getFetchedAt());
+        assertEquals(2, (int) snapshot.getImages().getCount());
+        assertNull(snapshot.getImages().getLimit());
+
+        Image actual = snapshot.getImages().getItems().get(0);
+        assertEquals("1", actual.getId());
+        assertEquals(TestImages.COLLECTION_ID, actual.getCollectionId());
+        assertEquals("imported", actual.getState());
+        assertEquals("none", actual.getError());
+        assertEquals("1.png", actual.getFilename());
+        assertEquals("chart", actual.getType());
+        assertEquals("Open Government Licence v3.0", actual.getLicense().getTitle());
+        assertEquals("http://licence/ogl", actual.getLicense().getHref());
+        assertEquals("http://localhost/images/1/downloads", actual.getLinks().downloads);
+        assertEquals("s3://bucket/1.png", actual.getUpload().path);
+
+        Image empty = snapshot.getImages().getItems().get(1);
+        assertNull(empty.getId());
+        assertNull(empty.getLicense());
+        assertNull(empty.getLinks());
+        assertNull(empty.getUpload());
+
+        // Then no temporary files are left behind
+        assertEquals(1, files().size());
+    }
+
+    @Test
+    public void testSnapshotStore_missing() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir);
+
+        // When a collection with no snapshot is read
+        // Then there is no snapshot
+        assertNull(store.read("col1"));
+    }
+
+    @Test
+    public void testSnapshotStore_replaced() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir);
+        store.write(new Snapshot("col1", images(image("1")), "\"1\"", FETCHED_AT));
+
+        // When a collection's snapshot is written again
+        store.write(new Snapshot("col1", images(image("1"), image("2")), "\"2\"", FETCHED_AT));
+
+        // Then the new snapshot replaces the old one
+        Snapshot snapshot = store.read("col1");
+        assertEquals("\"2\"", snapshot.getEtag());
+        assertEquals(2, snapshot.getImages().getItems().size());
+        assertEquals(1, files().size());
+    }
+
+    @Test
+    public void testSnapshotStore_corrupt() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir);
+        store.write(new Snapshot("col1", images(image("1")), null, FETCHED_AT));
+
+        // Given a snapshot file that has been damaged
+        Path file = store.fileFor("col1");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(file, bytes);
+
+        // When it is read
+        // Then it is treated as missing and removed
+        assertNull(store.read("col1"));
+        assertTrue(Files.notExists(file));
+    }
+
+    @Test
+    public void testSnapshotStore_truncated() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir);
+        store.write(new Snapshot("col1", images(image("1")), null, FETCHED_AT));
+
+        // Given a snapshot file that was cut short
+        Path file = store.fileFor("col1");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, 10));
+
+        // When it is read
+        // Then it is treated as missing
+        assertNull(store.read("col1"));
+    }
+
+    @Test
+    public void testSnapshotStore_evictsOldestFirst() throws Exception {
+        // Given a store with room for about three snapshots
+        long size = encodedSize(new Snapshot("col0", images(image("1")), null, FETCHED_AT));
+        SnapshotStore store = new SnapshotStore(dir, size * 3 + size / 2, Duration.ZERO);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            store.write(new Snapshot("col" + i, images(image("1")), null, FETCHED_AT));
+            Files.setLastModifiedTime(store.fileFor("col" + i), FileTime.fromMillis(now - (10 - i) * 1000L));
+        }
+
+        // When another snapshot is written
+        store.write(new Snapshot("col3", images(image("1")), null, FETCHED_AT));
+
+        // Then the least recently written snapshot is evicted to stay within the limit
+        assertNull(store.read("col0"));
+        assertNotNull(store.read("col1"));
+        assertNotNull(store.read("col2"));
+        assertNotNull(store.read("col3"));
+        assertTrue(store.totalBytes() <= store.getMaxTotalBytes());
+    }
+
+    @Test
+    public void testSnapshotStore_largerThanLimit() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir, 100, Duration.ZERO);
+
+        // When a snapshot larger than the whole store is written
+        List<Image> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(image(String.valueOf(i)));
+        }
+        store.write(new Snapshot("col1", images(items.toArray(new Image[0])), null, FETCHED_AT));
+
+        // Then it is not stored
+        assertNull(store.read("col1"));
+        assertEquals(0, store.totalBytes());
+    }
+
+    private long encodedSize(Snapshot snapshot) {
+        return SnapshotCodec.encode(snapshot).length;
+    }
+
+    private List<Path> files() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
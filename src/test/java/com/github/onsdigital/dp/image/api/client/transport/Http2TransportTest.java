@@ -0,0 +1,103 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import com.github.onsdigital.dp.image.api.client.RetryStrategy;
+import com.github.onsdigital.dp.image.api.client.StubServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Http2TransportTest extends TransportContractTest {
+
+    @Override
+    protected boolean http2() {
+        return true;
+    }
+
+    @Override
+    protected Transport createTransport() {
+        return new Http2Transport(H2AsyncClientBuilder.create().disableAutomaticRetries().build(),
+                new RetryStrategy(MAX_RETRIES, RETRY_INTERVAL));
+    }
+
+    @Test
+    public void testHttp2Transport_multiplexed() throws Exception {
+        // Given a server that holds every response until all requests have arrived
+        int requests = 10;
+        CountDownLatch arrived = new CountDownLatch(requests);
+        server.handle("/images", req -> {
+            arrived.countDown();
+            try {
+                arrived.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new StubServer.Response(HttpStatus.SC_OK, req.protocol);
+        });
+
+        // When the requests are executed concurrently
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit(() -> {
+                    try (TransportResponse resp = transport.execute(get("/images"))) {
+                        return IOUtils.toString(resp.getBody(), StandardCharsets.UTF_8);
+                    }
+                }));
+            }
+
+            // Then they are all in flight at once over HTTP/2 on a single connection
+            for (Future<String> result : results) {
+                assertEquals("HTTP/2.0", result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(0, arrived.getCount());
+            assertEquals(1, server.connections());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testHttp2Transport_bodyClosedEarly() throws Exception {
+        // Given a server returning a body larger than a stream's flow-control window
+        server.handle("/large", req -> new StubServer.Response(HttpStatus.SC_OK, new byte[1024 * 1024]));
+
+        // When more responses than the server's concurrent stream limit are closed before their body is read,
+        // alternately closing the body stream first and closing just the response
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            for (int i = 0; i < H2Config.DEFAULT.getMaxConcurrentStreams() + 50; i++) {
+                try (TransportResponse resp = transport.execute(get("/large"))) {
+                    InputStream body = resp.getBody();
+                    assertTrue(body.read() >= 0);
+                    if (i % 2 == 0) {
+                        Channels.newChannel(body).close();
+                    }
+                }
+            }
+        });
+
+        // Then the connection can still serve further requests
+        server.handle("/images", req -> new StubServer.Response(HttpStatus.SC_OK, "{}"));
+        try (TransportResponse resp = transport.execute(get("/images"))) {
+            assertEquals("{}", IOUtils.toString(resp.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import com.github.onsdigital.dp.image.api.client.RetryStrategy;
+import org.apache.http.impl.client.HttpClients;
+
+public class HttpClient4TransportTest extends TransportContractTest {
+
+    @Override
+    protected boolean http2() {
+        return false;
+    }
+
+    @Override
+    protected Transport createTransport() {
+        RetryStrategy retryStrategy = new RetryStrategy(MAX_RETRIES, RETRY_INTERVAL);
+        return new HttpClient4Transport(HttpClients.custom()
+                .setServiceUnavailableRetryStrategy(retryStrategy)
+                .setRetryHandler(retryStrategy)
+                .build());
+    }
+}
@@ -0,0 +1,394 @@
+package com.github.onsdigital.dp.image.api.client.transport;
+
+import com.github.onsdigital.dp.image.api.client.StubServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Behaviour every {@link Transport} must provide, run against a local stub server
+ */
+public abstract class TransportContractTest {
+
+    protected static final int MAX_RETRIES = 2;
+    protected static final int RETRY_INTERVAL = 1;
+
+    protected StubServer server;
+    protected Transport transport;
+
+    protected abstract Transport createTransport();
+
+    /**
+     * @return true if the stub server should speak HTTP/2 rather than HTTP/1.1
+     */
+    protected abstract boolean http2();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new StubServer(http2());
+        transport = createTransport();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    public void testTransport_get() throws Exception {
+        // Given a server returning a JSON body
+        String json = "{\"count\":0}";
+        server.handle("/images", req -> new StubServer.Response(HttpStatus.SC_OK, json)
+                .header("X-Request-Path", req.path + "?" + req.query));
+
+        // When a GET request is executed
+        try (TransportResponse resp = transport.execute(get("/images?collection_id=col123"))) {
+
+            // Then the status, headers and body are returned
+            assertEquals(HttpStatus.SC_OK, resp.getStatusCode());
+            assertEquals("/images?collection_id=col123", resp.getFirstHeader("X-Request-Path"));
+            assertNull(resp.getFirstHeader("X-Not-Present"));
+            assertEquals(json.length(), resp.getContentLength());
+            assertEquals(json, IOUtils.toString(resp.getBody(), StandardCharsets.UTF_8));
+            assertEquals(0, resp.getRetries());
+        }
+    }
+
+    @Test
+    public void testTransport_headersAndMethod() throws Exception {
+        // Given a server echoing the method and authorization header
+        server.handle("/images/1/publish", req ->
+                new StubServer.Response(HttpStatus.SC_NO_CONTENT)
+                        .header("X-Method", req.method)
+                        .header("X-Auth", req.headers.get("Authorization")));
+
+        // When a POST request with an authorization header is executed
+        TransportRequest req = new TransportRequest("POST", uri("/images/1/publish"))
+                .addHeader("Authorization", "token");
+        try (TransportResponse resp = transport.execute(req)) {
+
+            // Then the method and header reach the server and the empty body is returned
+            assertEquals(HttpStatus.SC_NO_CONTENT, resp.getStatusCode());
+            assertEquals("POST", resp.getFirstHeader("X-Method"));
+            assertEquals("token", resp.getFirstHeader("X-Auth"));
+            assertEquals(-1, resp.getContentLength());
+            assertEquals(-1, resp.getBody().read());
+        }
+    }
+
+    @Test
+    public void testTransport_serverErrorRetried() throws Exception {
+        // Given a server that fails the first request
+        AtomicInteger calls = new AtomicInteger();
+        server.handle("/images", req -> calls.incrementAndGet() == 1 ?
+                new StubServer.Response(HttpStatus.SC_SERVICE_UNAVAILABLE) :
+                new StubServer.Response(HttpStatus.SC_OK, "{}"));
+
+        // When a request is executed
+        try (TransportResponse resp = transport.execute(get("/images"))) {
+
+            // Then it is retried and the successful response returned
+            assertEquals(HttpStatus.SC_OK, resp.getStatusCode());
+            assertEquals(1, resp.getRetries());
+            assertEquals(2, calls.get());
+        }
+    }
+
+    @Test
+    public void testTransport_serverErrorRetriesExhausted() throws Exception {
+        // Given a server that always fails
+        AtomicInteger calls = new AtomicInteger();
+        server.handle("/images", req -> {
+            calls.incrementAndGet();
+            return new StubServer.Response(HttpStatus.SC_INTERNAL_SERVER_ERROR, "error");
+        });
+
+        // When a request is executed
+        try (TransportResponse resp = transport.execute(get("/images"))) {
+
+            // Then the last error is returned once the retries are used up
+            assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, resp.getStatusCode());
+            assertEquals(MAX_RETRIES, resp.getRetries());
+            assertEquals(MAX_RETRIES + 1, calls.get());
+        }
+    }
+
+    @Test
+    public void testTransport_connectionFailureRetried() throws Exception {
+        // Given a connection that is dropped before the server responds
+        server.handle("/images", req -> new StubServer.Response(HttpStatus.SC_OK, "{}"));
+
+        try (DroppingProxy proxy = new DroppingProxy(server, 1)) {
+
+            // When a request without a body is executed
+            try (TransportResponse resp = transport.execute(new TransportRequest("GET", proxy.uri("/images")))) {
+
+                // Then it is retried on a new connection and the successful response returned
+                assertEquals(HttpStatus.SC_OK, resp.getStatusCode());
+                assertEquals("{}", IOUtils.toString(resp.getBody(), StandardCharsets.UTF_8));
+                assertEquals(1, resp.getRetries());
+                assertEquals(2, proxy.connections());
+            }
+        }
+    }
+
+    @Test
+    public void testTransport_connectionFailureWithRepeatableBodyRetried() throws Exception {
+        // Given a connection that is dropped before the server responds
+        List<byte[]> received = new CopyOnWriteArrayList<>();
+        server.handle("/upload", req -> {
+            received.add(req.body);
+            return new StubServer.Response(HttpStatus.SC_CREATED);
+        });
+
+        try (DroppingProxy proxy = new DroppingProxy(server, 1)) {
+
+            // When an idempotent request with a body that can be sent again is executed
+            TransportRequest req = new TransportRequest("PUT", proxy.uri("/upload"))
+                    .setBody(new RequestBody("image/png", new byte[10]));
+            try (TransportResponse resp = transport.execute(req)) {
+
+                // Then it is retried on a new connection with its body
+                assertEquals(HttpStatus.SC_CREATED, resp.getStatusCode());
+                assertEquals(2, proxy.connections());
+                assertEquals(1, received.size());
+                assertEquals(10, received.get(0).length);
+            }
+        }
+    }
+
+    @Test
+    public void testTransport_connectionFailureOnPostNotRetried() throws Exception {
+        // Given a connection that is dropped after the request is sent
+        server.handle("/images/img1/publish", req -> new StubServer.Response(HttpStatus.SC_OK));
+
+        try (DroppingProxy proxy = new DroppingProxy(server, 1)) {
+
+            // When a POST without a body is executed
+            TransportRequest req = new TransportRequest("POST", proxy.uri("/images/img1/publish"));
+
+            // Then the error is thrown without retrying, as the server may have acted on the request
+            assertThrows(IOException.class, () -> transport.execute(req).close());
+            assertEquals(1, proxy.connections());
+        }
+    }
+
+    @Test
+    public void testTransport_clientErrorNotRetried() throws Exception {
+        // Given a path the server does not handle
+        // When a request is executed
+        try (TransportResponse resp = transport.execute(get("/missing"))) {
+
+            // Then the not found response is returned without retrying
+            assertEquals(HttpStatus.SC_NOT_FOUND, resp.getStatusCode());
+            assertEquals(0, resp.getRetries());
+        }
+    }
+
+    @Test
+    public void testTransport_redirectsDisabled() throws Exception {
+        // Given a path the server redirects
+        server.handle("/old", req -> new StubServer.Response(HttpStatus.SC_MOVED_TEMPORARILY)
+                .header("Location", "/images"));
+        server.handle("/images", req -> new StubServer.Response(HttpStatus.SC_OK, "{}"));
+
+        // When a request that does not follow redirects is executed
+        try (TransportResponse resp = transport.execute(get("/old").setRedirectsEnabled(false))) {
+
+            // Then the redirect itself is returned
+            assertEquals(HttpStatus.SC_MOVED_TEMPORARILY, resp.getStatusCode());
+            assertEquals("/images", resp.getFirstHeader("Location"));
+        }
+    }
+
+    @Test
+    public void testTransport_largeBody() throws Exception {
+        // Given a server returning a body larger than any flow-control window
+        byte[] body = new byte[4 * 1024 * 1024];
+        new Random(1).nextBytes(body);
+        server.handle("/large", req -> new StubServer.Response(HttpStatus.SC_OK, body));
+
+        // When the body is read
+        try (TransportResponse resp = transport.execute(get("/large"))) {
+
+            // Then every byte is received
+            assertEquals(body.length, resp.getContentLength());
+            assertArrayEquals(body, IOUtils.toByteArray(resp.getBody()));
+        }
+    }
+
+    @Test
+    public void testTransport_streamedBody() throws Exception {
+        // Given a server recording the request body
+        AtomicReference<StubServer.Request> received = new AtomicReference<>();
+        server.handle("/upload", req -> {
+            received.set(req);
+            return new StubServer.Response(HttpStatus.SC_CREATED);
+        });
+
+        // When a body larger than any flow-control window is streamed through a small buffer
+        byte[] body = new byte[4 * 1024 * 1024];
+        new Random(2).nextBytes(body);
+        TransportRequest req = new TransportRequest("PUT", uri("/upload")).setBody(new RequestBody("image/png",
+                () -> Channels.newChannel(new ByteArrayInputStream(body)), true, 16 * 1024));
+        try (TransportResponse resp = transport.execute(req)) {
+
+            // Then every byte reaches the server with the content type
+            assertEquals(HttpStatus.SC_CREATED, resp.getStatusCode());
+            assertEquals("PUT", received.get().method);
+            assertEquals("image/png", received.get().headers.get("Content-Type"));
+            assertArrayEquals(body, received.get().body);
+        }
+    }
+
+    @Test
+    public void testTransport_nonRepeatableBodyNotRetried() throws Exception {
+        // Given a server that always fails
+        AtomicInteger calls = new AtomicInteger();
+        server.handle("/upload", req -> {
+            calls.incrementAndGet();
+            return new StubServer.Response(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        });
+
+        // When a request with a body that can only be read once is executed
+        TransportRequest req = new TransportRequest("PUT", uri("/upload")).setBody(new RequestBody("image/png",
+                () -> Channels.newChannel(new ByteArrayInputStream(new byte[10])), false, 1024));
+        try (TransportResponse resp = transport.execute(req)) {
+
+            // Then the error is returned without retrying
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, resp.getStatusCode());
+            assertEquals(0, resp.getRetries());
+            assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    public void testTransport_concurrentRequests() throws Exception {
+        // Given a server returning each request's id
+        server.handle("/images", req -> new StubServer.Response(HttpStatus.SC_OK, req.query));
+
+        // When many requests are executed at once
+        int requests = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                String query = "id=" + i;
+                results.add(executor.submit(() -> {
+                    try (TransportResponse resp = transport.execute(get("/images?" + query))) {
+                        return IOUtils.toString(resp.getBody(), StandardCharsets.UTF_8);
+                    }
+                }));
+            }
+
+            // Then every request receives its own response
+            for (int i = 0; i < requests; i++) {
+                assertEquals("id=" + i, results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    protected TransportRequest get(String path) {
+        return new TransportRequest("GET", uri(path));
+    }
+
+    protected URI uri(String path) {
+        return URI.create(server.url() + path);
+    }
+
+    /**
+     * Forwards connections to the stub server, except the first few, which are closed once the client has started
+     * sending its request
+     */
+    private static class DroppingProxy implements Closeable {
+
+        private final ServerSocket listener;
+        private final int targetPort;
+        private final int drops;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        private DroppingProxy(StubServer server, int drops) throws IOException {
+            this.targetPort = URI.create(server.url()).getPort();
+            this.drops = drops;
+            this.listener = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+            executor.execute(this::accept);
+        }
+
+        private URI uri(String path) {
+            return URI.create("http://localhost:" + listener.getLocalPort() + path);
+        }
+
+        private int connections() {
+            return connections.get();
+        }
+
+        private void accept() {
+            try {
+                while (true) {
+                    Socket client = listener.accept();
+                    sockets.add(client);
+                    if (connections.incrementAndGet() <= drops) {
+                        client.getInputStream().read(new byte[8192]);
+                        client.close();
+                        continue;
+                    }
+                    Socket upstream = new Socket(InetAddress.getByName("localhost"), targetPort);
+                    sockets.add(upstream);
+                    executor.execute(() -> pipe(client, upstream));
+                    executor.execute(() -> pipe(upstream, client));
+                }
+            } catch (IOException e) {
+                // the proxy has been closed
+            }
+        }
+
+        private static void pipe(Socket from, Socket to) {
+            try {
+                IOUtils.copy(from.getInputStream(), to.getOutputStream());
+                to.shutdownOutput();
+            } catch (IOException e) {
+                // either side has gone away
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            listener.close();
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            executor.shutdownNow();
+        }
+    }
+}